@@ -28,7 +28,8 @@ import com.google.android.exoplayer2.util.RepeatModeUtil
 import com.google.android.exoplayer2.util.Util
 
 class MainActivity : AppCompatActivity(), StyledPlayerControlView.OnFullScreenModeChangedListener,
-    StyledPlayerControlView.OnSettingsWindowDismissListener {
+    StyledPlayerControlView.OnSettingsWindowDismissListener,
+    StyledPlayerControlView.OnVideoSettingsButtonPressedListener {
 
     private var playerView: StyledPlayerView? = null
     private var videoUrl =
@@ -43,6 +44,7 @@ class MainActivity : AppCompatActivity(), StyledPlayerControlView.OnFullScreenMo
     private var shouldPlayWhenReady = false
     private var trackSelector: DefaultTrackSelector? = null
     private var listener: Player.Listener? = null
+    private var preparedTrackSelectionDialogBuilder: TrackSelectionDialogBuilder? = null
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
@@ -58,6 +60,7 @@ class MainActivity : AppCompatActivity(), StyledPlayerControlView.OnFullScreenMo
             )
         ).apply {
             setVideoSettingsButtonListener { showTrackSelectionDialog() }
+            setVideoSettingsButtonPressedListener(this@MainActivity)
         }
         findViewById<FrameLayout>(R.id.video_container).addView(playerView)
         initializePlayer()
@@ -67,29 +70,40 @@ class MainActivity : AppCompatActivity(), StyledPlayerControlView.OnFullScreenMo
         return ResourcesCompat.getDrawable(resources, id, theme)
     }
 
+    /** Builds the dialog view while the settings button is held, so the click only shows it. */
+    override fun onVideoSettingsButtonPressed() {
+        preparedTrackSelectionDialogBuilder = createTrackSelectionDialogBuilder()?.prepare()
+    }
+
+    /** Drops the prepared dialog if the press didn't end in a click. */
+    override fun onVideoSettingsButtonReleased() {
+        preparedTrackSelectionDialogBuilder = null
+    }
+
     private fun showTrackSelectionDialog() {
-        if (player?.trackSelector != null && TrackSelectionDialog.willHaveContent(player?.trackSelector as? DefaultTrackSelector)) {
+        val builder = preparedTrackSelectionDialogBuilder ?: createTrackSelectionDialogBuilder()
+        preparedTrackSelectionDialogBuilder = null
+        builder?.build()?.show()
+    }
+
+    private fun createTrackSelectionDialogBuilder(): TrackSelectionDialogBuilder? {
+        val trackInventory = playerView?.trackInventory ?: return null
+        if (player?.trackSelector != null && TrackSelectionDialog.willHaveContent(trackInventory)) {
             val renderIndex = getRenderIndex()
-            val dialog = TrackSelectionDialogBuilder(
+            return TrackSelectionDialogBuilder(
                 this,
                 "Select Video Quality",
                 player?.trackSelector as DefaultTrackSelector,
                 renderIndex ?: 0
             ).setAllowAdaptiveSelections(false).setShowDisableOption(true)
-                .setTrackNameProvider { format -> "${format.width} x ${format.height}" }.build()
-
-            dialog.show()
+                .setTrackNameProvider { format -> "${format.width} x ${format.height}" }
         }
+        return null
     }
 
     private fun getRenderIndex(type: Int = C.TRACK_TYPE_VIDEO): Int? {
-        val trackInfo = trackSelector?.currentMappedTrackInfo
-        val renderCount = trackInfo?.rendererCount ?: 0
-        for (renderIndex in 0 until renderCount) {
-            val trackType: Int? = trackInfo?.getRendererType(renderIndex)
-            if (trackType == type) return renderIndex
-        }
-        return null
+        val renderIndex = playerView?.trackInventory?.getRendererIndex(type) ?: C.INDEX_UNSET
+        return if (renderIndex == C.INDEX_UNSET) null else renderIndex
     }
 
     private fun initializePlayer() {
@@ -133,52 +147,37 @@ class MainActivity : AppCompatActivity(), StyledPlayerControlView.OnFullScreenMo
                 exoplayer.prepare()
                 listener = object : Player.Listener {
 
+                    override fun onEvents(player: Player, events: Player.Events) {
+                        super.onEvents(player, events)
+                        if (events.contains(Player.EVENT_TRACKS_CHANGED)) {
+                            // A dialog prepared for the old tracks would show stale content.
+                            preparedTrackSelectionDialogBuilder = null
+                        }
+                    }
+
                     override fun onPlaybackStateChanged(state: Int) {
                         super.onPlaybackStateChanged(state)
                         try {
                             if (state == Player.STATE_READY) {
 
-                                val trackInfo = trackSelector?.currentMappedTrackInfo
+                                val trackInventory = playerView?.trackInventory ?: return
 
                                 // Get all renderers : video, audio etc
-                                val renderCount = trackInfo?.rendererCount ?: 0
-
-                                // render index
-                                for (renderIndex in 0 until renderCount) {
-                                    val trackType: Int? = trackInfo?.getRendererType(renderIndex)
-                                    val isTrackSupported = isSupportedTrackType(trackType!!)
+                                for (renderIndex in 0 until trackInventory.rendererCount) {
+                                    val trackType = trackInventory.getRendererType(renderIndex)
+                                    if (!isSupportedTrackType(trackType)) continue
 
-                                    if (isTrackSupported) {
+                                    val trackName = getTrackTypeString(trackType)
+                                    Log.v(LOG_TAG, "Track Type : $trackName")
 
-                                        val trackName = getTrackTypeString(trackType)
-                                        Log.v(LOG_TAG, "Track Type : $trackName")
-
-                                        val trackGroupArray = trackInfo.getTrackGroups(renderIndex)
+                                    val tracks = trackInventory.getTracks(renderIndex)
+                                    Log.v(LOG_TAG, "Available Tracks for $trackName : ${tracks.size}")
+                                    for (track in tracks) {
                                         Log.v(
                                             LOG_TAG,
-                                            "Available Tracks Groups for $trackName : ${trackGroupArray.length}"
+                                            "Track ${track.trackIndex} In Group ${track.groupIndex} : ${track.format}"
                                         )
-
-                                        for (groupIndex in 0 until trackGroupArray.length) {
-                                            Log.v(
-                                                LOG_TAG,
-                                                "Track Group Length At $groupIndex for $trackName : ${
-                                                    trackGroupArray.get(groupIndex).length
-                                                }"
-                                            )
-                                            val trackGroup = trackGroupArray.get(groupIndex)
-                                            for (trackIndex in 0 until trackGroup.length) {
-                                                Log.v(
-                                                    LOG_TAG,
-                                                    "Track In Group $groupIndex : ${
-                                                        trackGroup.getFormat(trackIndex)
-                                                    }"
-                                                )
-                                            }
-                                        }
-
                                     }
-
                                 }
                             }
                         } catch (e: Exception) {
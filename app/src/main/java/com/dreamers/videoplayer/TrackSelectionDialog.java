@@ -19,11 +19,15 @@ import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.Button;
+import android.widget.FrameLayout;
 import android.widget.LinearLayout;
 import android.widget.ScrollView;
 
@@ -41,20 +45,35 @@ import com.google.android.exoplayer2.source.TrackGroupArray;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector.SelectionOverride;
 import com.google.android.exoplayer2.trackselection.MappingTrackSelector.MappedTrackInfo;
+import com.google.android.exoplayer2.ui.TrackInventory;
+import com.google.android.exoplayer2.ui.TrackSelectionTransaction;
 import com.google.android.exoplayer2.ui.TrackSelectionView;
 import com.google.android.exoplayer2.util.Assertions;
 import com.google.android.material.tabs.TabLayout;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 /** Dialog to select tracks. */
 public final class TrackSelectionDialog extends DialogFragment {
 
+  private static final String TAG = "TrackSelectionDialog";
+
+  /**
+   * The number of tracks from which a tab shows its tracks in a RecyclerView, so that only the
+   * tracks on screen get views.
+   */
+  private static final int RECYCLER_VIEW_MIN_TRACK_COUNT = 32;
+
+  /** The tabs by renderer index, in tab order. */
+  private final SparseArray<RendererTab> tabs;
+  /** The fragments of the tabs that were visited, by renderer index. */
   private final SparseArray<TrackSelectionViewFragment> tabFragments;
-  private final ArrayList<Integer> tabTrackTypes;
 
+  @Nullable private MappedTrackInfo mappedTrackInfo;
+  private boolean allowAdaptiveSelections;
+  private boolean allowMultipleOverrides;
+  private long openStartTimeMs;
   private int titleId;
   private DialogInterface.OnClickListener onClickListener;
   private DialogInterface.OnDismissListener onDismissListener;
@@ -81,6 +100,20 @@ public final class TrackSelectionDialog extends DialogFragment {
     return false;
   }
 
+  /**
+   * Returns whether a track selection dialog will have content to display for the tracks in the
+   * specified {@link TrackInventory}.
+   */
+  public static boolean willHaveContent(TrackInventory trackInventory) {
+    for (int i = 0; i < trackInventory.getRendererCount(); i++) {
+      if (!trackInventory.getTracks(i).isEmpty()
+          && isSupportedTrackType(trackInventory.getRendererType(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Creates a dialog for a given {@link DefaultTrackSelector}, whose parameters will be
    * automatically updated when tracks are selected.
@@ -102,23 +135,16 @@ public final class TrackSelectionDialog extends DialogFragment {
         /* allowAdaptiveSelections= */ true,
         /* allowMultipleOverrides= */ false,
         /* onClickListener= */ (dialog, which) -> {
-          DefaultTrackSelector.ParametersBuilder builder = parameters.buildUpon();
+          // Apply the selections of all tabs at once, and only if they changed anything.
+          TrackSelectionTransaction transaction = new TrackSelectionTransaction(trackSelector);
           for (int i = 0; i < mappedTrackInfo.getRendererCount(); i++) {
-            builder
-                .clearSelectionOverrides(/* rendererIndex= */ i)
-                .setRendererDisabled(
-                    /* rendererIndex= */ i,
-                    trackSelectionDialog.getIsDisabled(/* rendererIndex= */ i));
-            List<SelectionOverride> overrides =
-                trackSelectionDialog.getOverrides(/* rendererIndex= */ i);
-            if (!overrides.isEmpty()) {
-              builder.setSelectionOverride(
-                  /* rendererIndex= */ i,
-                  mappedTrackInfo.getTrackGroups(/* rendererIndex= */ i),
-                  overrides.get(0));
-            }
+            transaction.setRendererSelection(
+                /* rendererIndex= */ i,
+                mappedTrackInfo.getTrackGroups(/* rendererIndex= */ i),
+                trackSelectionDialog.getIsDisabled(/* rendererIndex= */ i),
+                trackSelectionDialog.getOverrides(/* rendererIndex= */ i));
           }
-          trackSelector.setParameters(builder);
+          transaction.commit();
         },
         onDismissListener);
     return trackSelectionDialog;
@@ -159,8 +185,8 @@ public final class TrackSelectionDialog extends DialogFragment {
   }
 
   public TrackSelectionDialog() {
+    tabs = new SparseArray<>();
     tabFragments = new SparseArray<>();
-    tabTrackTypes = new ArrayList<>();
     // Retain instance across activity re-creation to prevent losing access to init data.
     setRetainInstance(true);
   }
@@ -176,20 +202,25 @@ public final class TrackSelectionDialog extends DialogFragment {
     this.titleId = titleId;
     this.onClickListener = onClickListener;
     this.onDismissListener = onDismissListener;
+    this.mappedTrackInfo = mappedTrackInfo;
+    this.allowAdaptiveSelections = allowAdaptiveSelections;
+    this.allowMultipleOverrides = allowMultipleOverrides;
+    // Summarize each tab here. Its fragment is only created when the tab is first visited.
     for (int i = 0; i < mappedTrackInfo.getRendererCount(); i++) {
       if (showTabForRenderer(mappedTrackInfo, i)) {
-        int trackType = mappedTrackInfo.getRendererType(/* rendererIndex= */ i);
         TrackGroupArray trackGroupArray = mappedTrackInfo.getTrackGroups(i);
-        TrackSelectionViewFragment tabFragment = new TrackSelectionViewFragment();
-        tabFragment.init(
-            mappedTrackInfo,
-            /* rendererIndex= */ i,
-            initialParameters.getRendererDisabled(/* rendererIndex= */ i),
-            initialParameters.getSelectionOverride(/* rendererIndex= */ i, trackGroupArray),
-            allowAdaptiveSelections,
-            allowMultipleOverrides);
-        tabFragments.put(i, tabFragment);
-        tabTrackTypes.add(trackType);
+        int trackCount = 0;
+        for (int groupIndex = 0; groupIndex < trackGroupArray.length; groupIndex++) {
+          trackCount += trackGroupArray.get(groupIndex).length;
+        }
+        tabs.put(
+            i,
+            new RendererTab(
+                /* rendererIndex= */ i,
+                mappedTrackInfo.getRendererType(/* rendererIndex= */ i),
+                trackCount,
+                initialParameters.getRendererDisabled(/* rendererIndex= */ i),
+                initialParameters.getSelectionOverride(/* rendererIndex= */ i, trackGroupArray)));
       }
     }
   }
@@ -202,7 +233,11 @@ public final class TrackSelectionDialog extends DialogFragment {
    */
   public boolean getIsDisabled(int rendererIndex) {
     TrackSelectionViewFragment rendererView = tabFragments.get(rendererIndex);
-    return rendererView != null && rendererView.isDisabled;
+    if (rendererView != null) {
+      return rendererView.isDisabled;
+    }
+    RendererTab tab = tabs.get(rendererIndex);
+    return tab != null && tab.initialIsDisabled;
   }
 
   /**
@@ -214,12 +249,19 @@ public final class TrackSelectionDialog extends DialogFragment {
    */
   public List<SelectionOverride> getOverrides(int rendererIndex) {
     TrackSelectionViewFragment rendererView = tabFragments.get(rendererIndex);
-    return rendererView == null ? Collections.emptyList() : rendererView.overrides;
+    if (rendererView != null) {
+      return rendererView.overrides;
+    }
+    RendererTab tab = tabs.get(rendererIndex);
+    return tab == null || tab.initialOverride == null
+        ? Collections.emptyList()
+        : Collections.singletonList(tab.initialOverride);
   }
 
   @Override
   @NonNull
   public Dialog onCreateDialog(Bundle savedInstanceState) {
+    openStartTimeMs = SystemClock.elapsedRealtime();
     // We need to own the view to let tab layout work correctly on all API levels. We can't use
     // AlertDialog because it owns the view itself, so we use AppCompatDialog instead, themed using
     // the AlertDialog theme overlay with force-enabled title.
@@ -245,16 +287,39 @@ public final class TrackSelectionDialog extends DialogFragment {
     Button okButton = dialogView.findViewById(R.id.track_selection_dialog_ok_button);
     viewPager.setAdapter(new FragmentAdapter(getChildFragmentManager()));
     tabLayout.setupWithViewPager(viewPager);
-    tabLayout.setVisibility(tabFragments.size() > 1 ? View.VISIBLE : View.GONE);
+    tabLayout.setVisibility(tabs.size() > 1 ? View.VISIBLE : View.GONE);
     cancelButton.setOnClickListener(view -> dismiss());
     okButton.setOnClickListener(
         view -> {
           onClickListener.onClick(getDialog(), DialogInterface.BUTTON_POSITIVE);
           dismiss();
         });
+    if (BuildConfig.DEBUG) {
+      logOpeningTime(dialogView);
+    }
     return dialogView;
   }
 
+  /** Logs the time from creating the dialog until it's first drawn. Only used in debug builds. */
+  private void logOpeningTime(View dialogView) {
+    ViewTreeObserver viewTreeObserver = dialogView.getViewTreeObserver();
+    viewTreeObserver.addOnPreDrawListener(
+        new ViewTreeObserver.OnPreDrawListener() {
+          @Override
+          public boolean onPreDraw() {
+            dialogView.getViewTreeObserver().removeOnPreDrawListener(this);
+            Log.d(
+                TAG,
+                "Opened in "
+                    + (SystemClock.elapsedRealtime() - openStartTimeMs)
+                    + " ms with "
+                    + tabs.size()
+                    + " tabs");
+            return true;
+          }
+        });
+  }
+
   public static boolean showTabForRenderer(MappedTrackInfo mappedTrackInfo, int rendererIndex) {
     TrackGroupArray trackGroupArray = mappedTrackInfo.getTrackGroups(rendererIndex);
     if (trackGroupArray.length == 0) {
@@ -297,17 +362,52 @@ public final class TrackSelectionDialog extends DialogFragment {
     @Override
     @NonNull
     public Fragment getItem(int position) {
-      return tabFragments.valueAt(position);
+      // Only called when the tab is first instantiated.
+      RendererTab tab = tabs.valueAt(position);
+      TrackSelectionViewFragment tabFragment = new TrackSelectionViewFragment();
+      tabFragment.init(
+          Assertions.checkNotNull(mappedTrackInfo),
+          tab.rendererIndex,
+          tab.initialIsDisabled,
+          tab.initialOverride,
+          allowAdaptiveSelections,
+          allowMultipleOverrides,
+          /* useRecyclerView= */ tab.trackCount >= RECYCLER_VIEW_MIN_TRACK_COUNT);
+      tabFragments.put(tab.rendererIndex, tabFragment);
+      return tabFragment;
     }
 
     @Override
     public int getCount() {
-      return tabFragments.size();
+      return tabs.size();
     }
 
     @Override
     public CharSequence getPageTitle(int position) {
-      return getTrackTypeString(tabTrackTypes.get(position));
+      return getTrackTypeString(tabs.valueAt(position).trackType);
+    }
+  }
+
+  /** The summary of a renderer shown in a tab, taken when the dialog is initialized. */
+  private static final class RendererTab {
+
+    public final int rendererIndex;
+    public final int trackType;
+    public final int trackCount;
+    public final boolean initialIsDisabled;
+    @Nullable public final SelectionOverride initialOverride;
+
+    public RendererTab(
+        int rendererIndex,
+        int trackType,
+        int trackCount,
+        boolean initialIsDisabled,
+        @Nullable SelectionOverride initialOverride) {
+      this.rendererIndex = rendererIndex;
+      this.trackType = trackType;
+      this.trackCount = trackCount;
+      this.initialIsDisabled = initialIsDisabled;
+      this.initialOverride = initialOverride;
     }
   }
 
@@ -319,6 +419,7 @@ public final class TrackSelectionDialog extends DialogFragment {
     private int rendererIndex;
     private boolean allowAdaptiveSelections;
     private boolean allowMultipleOverrides;
+    private boolean useRecyclerView;
     private final String trackSelectionTag = "TrackSelectionTag";
 
     /* package */ boolean isDisabled;
@@ -335,7 +436,8 @@ public final class TrackSelectionDialog extends DialogFragment {
         boolean initialIsDisabled,
         @Nullable SelectionOverride initialOverride,
         boolean allowAdaptiveSelections,
-        boolean allowMultipleOverrides) {
+        boolean allowMultipleOverrides,
+        boolean useRecyclerView) {
       this.mappedTrackInfo = mappedTrackInfo;
       this.rendererIndex = rendererIndex;
       this.isDisabled = initialIsDisabled;
@@ -345,6 +447,7 @@ public final class TrackSelectionDialog extends DialogFragment {
               : Collections.singletonList(initialOverride);
       this.allowAdaptiveSelections = allowAdaptiveSelections;
       this.allowMultipleOverrides = allowMultipleOverrides;
+      this.useRecyclerView = useRecyclerView;
     }
 
     @Override
@@ -352,10 +455,22 @@ public final class TrackSelectionDialog extends DialogFragment {
         LayoutInflater inflater,
         @Nullable ViewGroup container,
         @Nullable Bundle savedInstanceState) {
+      // The track selection view is created when the tab is first shown, in onResume. The pager
+      // only resumes the current tab, while it creates the views of the adjacent ones too.
+      return new FrameLayout(inflater.getContext());
+    }
 
-      View rootView = createSelectionDialog(getContext());
+    @Override
+    public void onResume() {
+      super.onResume();
+      FrameLayout rootView = (FrameLayout) getView();
+      if (rootView != null && rootView.getChildCount() == 0) {
+        rootView.addView(createSelectionDialog(rootView.getContext()));
+        initTrackSelectionView(rootView.findViewWithTag(trackSelectionTag));
+      }
+    }
 
-      TrackSelectionView trackSelectionView = rootView.findViewWithTag(trackSelectionTag);
+    private void initTrackSelectionView(TrackSelectionView trackSelectionView) {
       trackSelectionView.setShowDisableOption(true);
       trackSelectionView.setAllowMultipleOverrides(allowMultipleOverrides);
       trackSelectionView.setAllowAdaptiveSelections(allowAdaptiveSelections);
@@ -366,7 +481,6 @@ public final class TrackSelectionDialog extends DialogFragment {
           overrides,
           /* trackFormatComparator= */ null,
           /* listener= */ this);
-      return rootView;
     }
 
     @Override
@@ -377,6 +491,16 @@ public final class TrackSelectionDialog extends DialogFragment {
     }
 
     private View createSelectionDialog(Context context) {
+      if (useRecyclerView) {
+        // The view scrolls its own tracks, so it mustn't be placed in a ScrollView.
+        TrackSelectionView trackSelectionView = new TrackSelectionView(context);
+        trackSelectionView.setLayoutParams(
+            new FrameLayout.LayoutParams(
+                FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
+        trackSelectionView.setTag(trackSelectionTag);
+        trackSelectionView.setUseRecyclerView(true);
+        return trackSelectionView;
+      }
       ScrollView dialogView = new ScrollView(context);
       dialogView.setLayoutParams(new ScrollView.LayoutParams(ScrollView.LayoutParams.WRAP_CONTENT,ScrollView.LayoutParams.MATCH_PARENT));
 
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A process-wide cache of decoded artwork, shared by all {@link PlayerView} and {@link
+ * StyledPlayerView} instances.
+ *
+ * <p>Entries are keyed by a hash of the encoded picture and the size and {@link Bitmap.Config} it
+ * was decoded for, so tracks of an album that embed the same cover art share a single bitmap.
+ * Recently used bitmaps are held in an LRU bounded by {@link #setMaxSizeBytes(int) a byte budget}.
+ * Bitmaps evicted from it stay reachable through weak references for as long as they're displayed
+ * elsewhere.
+ */
+public final class ArtworkCache {
+
+    /**
+     * The default byte budget, a sixteenth of the maximum heap size.
+     */
+    public static final int DEFAULT_MAX_SIZE_BYTES =
+            (int) Math.min(Runtime.getRuntime().maxMemory() / 16, Integer.MAX_VALUE);
+
+    // Picture data up to this size is hashed synchronously when looked up from the main thread.
+    private static final int MAX_SYNC_HASH_LENGTH = 256 * 1024;
+
+    private static final LruCache<Key, Bitmap> lruCache =
+            new LruCache<Key, Bitmap>(DEFAULT_MAX_SIZE_BYTES) {
+                @Override
+                protected int sizeOf(Key key, Bitmap bitmap) {
+                    return bitmap.getAllocationByteCount();
+                }
+
+                @Override
+                protected void entryRemoved(
+                        boolean evicted, Key key, Bitmap oldValue, @Nullable Bitmap newValue) {
+                    if (evicted) {
+                        putWeak(key, oldValue);
+                    }
+                }
+            };
+    private static final Map<Key, WeakReference<Bitmap>> weakCache = new HashMap<>();
+    // Hashes of picture data arrays that have already been hashed, keyed by array identity.
+    private static final WeakHashMap<byte[], Long> contentHashes = new WeakHashMap<>();
+
+    private ArtworkCache() {
+    }
+
+    /**
+     * Sets the maximum size of the strongly referenced bitmaps in the cache. The default is {@link
+     * #DEFAULT_MAX_SIZE_BYTES}.
+     *
+     * @param maxSizeBytes The maximum size, in bytes.
+     */
+    public static void setMaxSizeBytes(int maxSizeBytes) {
+        lruCache.resize(maxSizeBytes);
+    }
+
+    /**
+     * Removes all bitmaps from the cache.
+     */
+    public static void clear() {
+        lruCache.evictAll();
+        synchronized (weakCache) {
+            weakCache.clear();
+        }
+    }
+
+    /**
+     * Returns the cached artwork for {@code pictureData}, or null if it isn't cached. May be called on
+     * the main thread, so large picture data is only looked up if it has already been hashed.
+     */
+    @Nullable
+    /* package */ static Bitmap getIfCached(
+            byte[] pictureData, int targetWidth, int targetHeight, Bitmap.Config bitmapConfig) {
+        @Nullable Long contentHash;
+        synchronized (contentHashes) {
+            contentHash = contentHashes.get(pictureData);
+        }
+        if (contentHash == null) {
+            if (pictureData.length > MAX_SYNC_HASH_LENGTH) {
+                return null;
+            }
+            contentHash = getContentHash(pictureData);
+        }
+        return get(
+                new Key(contentHash, pictureData.length, targetWidth, targetHeight, bitmapConfig));
+    }
+
+    /**
+     * Returns the cached artwork for {@code pictureData}, decoding and caching it if necessary.
+     * Should be called on a background thread.
+     *
+     * @return The artwork, or null if the picture data couldn't be decoded.
+     */
+    @Nullable
+    /* package */ static Bitmap getOrDecode(
+            byte[] pictureData, int targetWidth, int targetHeight, Bitmap.Config bitmapConfig) {
+        Key key =
+                new Key(
+                        getContentHash(pictureData),
+                        pictureData.length,
+                        targetWidth,
+                        targetHeight,
+                        bitmapConfig);
+        @Nullable Bitmap bitmap = get(key);
+        if (bitmap == null) {
+            bitmap = ArtworkLoader.decode(pictureData, targetWidth, targetHeight, bitmapConfig);
+            if (bitmap != null) {
+                lruCache.put(key, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    @Nullable
+    private static Bitmap get(Key key) {
+        @Nullable Bitmap bitmap = lruCache.get(key);
+        if (bitmap != null) {
+            return bitmap;
+        }
+        synchronized (weakCache) {
+            @Nullable WeakReference<Bitmap> bitmapReference = weakCache.remove(key);
+            bitmap = bitmapReference != null ? bitmapReference.get() : null;
+        }
+        if (bitmap != null) {
+            // Promote the bitmap back into the LRU.
+            lruCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    private static void putWeak(Key key, Bitmap bitmap) {
+        synchronized (weakCache) {
+            Iterator<WeakReference<Bitmap>> iterator = weakCache.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().get() == null) {
+                    iterator.remove();
+                }
+            }
+            weakCache.put(key, new WeakReference<>(bitmap));
+        }
+    }
+
+    private static long getContentHash(byte[] pictureData) {
+        synchronized (contentHashes) {
+            @Nullable Long contentHash = contentHashes.get(pictureData);
+            if (contentHash != null) {
+                return contentHash;
+            }
+        }
+        // 64-bit FNV-1a.
+        long contentHash = 0xcbf29ce484222325L;
+        for (byte b : pictureData) {
+            contentHash ^= b & 0xff;
+            contentHash *= 0x100000001b3L;
+        }
+        synchronized (contentHashes) {
+            contentHashes.put(pictureData, contentHash);
+        }
+        return contentHash;
+    }
+
+    private static final class Key {
+
+        private final long contentHash;
+        private final int contentLength;
+        private final int targetWidth;
+        private final int targetHeight;
+        private final Bitmap.Config bitmapConfig;
+
+        public Key(
+                long contentHash,
+                int contentLength,
+                int targetWidth,
+                int targetHeight,
+                Bitmap.Config bitmapConfig) {
+            this.contentHash = contentHash;
+            this.contentLength = contentLength;
+            this.targetWidth = targetWidth;
+            this.targetHeight = targetHeight;
+            this.bitmapConfig = bitmapConfig;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return contentHash == other.contentHash
+                    && contentLength == other.contentLength
+                    && targetWidth == other.targetWidth
+                    && targetHeight == other.targetHeight
+                    && bitmapConfig == other.bitmapConfig;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (contentHash ^ (contentHash >>> 32));
+            result = 31 * result + contentLength;
+            result = 31 * result + targetWidth;
+            result = 31 * result + targetHeight;
+            result = 31 * result + bitmapConfig.hashCode();
+            return result;
+        }
+    }
+}
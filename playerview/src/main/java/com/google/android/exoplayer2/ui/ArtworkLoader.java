@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Point;
+import android.os.Handler;
+import android.util.DisplayMetrics;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.metadata.Metadata;
+import com.google.android.exoplayer2.metadata.flac.PictureFrame;
+import com.google.android.exoplayer2.metadata.id3.ApicFrame;
+import com.google.android.exoplayer2.util.Util;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Decodes artwork embedded in media metadata on a background thread, sampled down to the size of
+ * the view that displays it.
+ *
+ * <p>Decoded artwork is shared through the {@link ArtworkCache}, so picture data that has already
+ * been decoded for the same size isn't decoded again.
+ *
+ * <p>Each instance has at most one pending load. Starting a new load or calling {@link #cancel()}
+ * cancels it, and the callback of a cancelled load is never called.
+ */
+/* package */ final class ArtworkLoader {
+
+    /**
+     * Receives the result of a load on the thread that created the loader.
+     */
+    public interface Callback {
+
+        /**
+         * Called when artwork has been decoded.
+         *
+         * @param bitmap The decoded artwork, or null if the picture data couldn't be decoded.
+         */
+        void onArtworkLoaded(@Nullable Bitmap bitmap);
+    }
+
+    private static final int PICTURE_TYPE_FRONT_COVER = 3;
+    private static final int PICTURE_TYPE_NOT_SET = -1;
+
+    @Nullable
+    private static ExecutorService executorService;
+
+    private final Handler handler;
+
+    @Nullable
+    private Future<?> pendingLoad;
+    private int loadId;
+
+    public ArtworkLoader() {
+        handler = Util.createHandlerForCurrentLooper();
+    }
+
+    /**
+     * Returns the picture data of the preferred artwork in {@code metadataList}, or null if there's
+     * none. The first front cover picture is preferred. If there aren't any, the first picture is
+     * returned.
+     */
+    @Nullable
+    public static byte[] getPictureData(List<Metadata> metadataList) {
+        for (int i = 0; i < metadataList.size(); i++) {
+            @Nullable byte[] pictureData = getPictureData(metadataList.get(i));
+            if (pictureData != null) {
+                return pictureData;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static byte[] getPictureData(Metadata metadata) {
+        @Nullable byte[] currentPictureData = null;
+        int currentPictureType = PICTURE_TYPE_NOT_SET;
+        for (int i = 0; i < metadata.length(); i++) {
+            Metadata.Entry metadataEntry = metadata.get(i);
+            int pictureType;
+            byte[] pictureData;
+            if (metadataEntry instanceof ApicFrame) {
+                pictureData = ((ApicFrame) metadataEntry).pictureData;
+                pictureType = ((ApicFrame) metadataEntry).pictureType;
+            } else if (metadataEntry instanceof PictureFrame) {
+                pictureData = ((PictureFrame) metadataEntry).pictureData;
+                pictureType = ((PictureFrame) metadataEntry).pictureType;
+            } else {
+                continue;
+            }
+            if (currentPictureType == PICTURE_TYPE_NOT_SET || pictureType == PICTURE_TYPE_FRONT_COVER) {
+                currentPictureData = pictureData;
+                currentPictureType = pictureType;
+                if (currentPictureType == PICTURE_TYPE_FRONT_COVER) {
+                    break;
+                }
+            }
+        }
+        return currentPictureData;
+    }
+
+    /**
+     * Decodes {@code pictureData} on a background thread, cancelling any pending load. If the artwork
+     * is found in the {@link ArtworkCache}, the callback is called synchronously instead.
+     *
+     * @param pictureData  The encoded picture.
+     * @param targetView   The view that will display the artwork. Its size, or the display size if it
+     *                     hasn't been laid out, is used to sample the picture down.
+     * @param bitmapConfig The {@link Bitmap.Config} to decode to.
+     * @param callback     The callback to receive the decoded artwork.
+     */
+    public void load(
+            byte[] pictureData, View targetView, Bitmap.Config bitmapConfig, Callback callback) {
+        cancel();
+        Point targetSize = getTargetSize(targetView);
+        int targetWidth = targetSize.x;
+        int targetHeight = targetSize.y;
+        @Nullable
+        Bitmap cachedBitmap =
+                ArtworkCache.getIfCached(pictureData, targetWidth, targetHeight, bitmapConfig);
+        if (cachedBitmap != null) {
+            callback.onArtworkLoaded(cachedBitmap);
+            return;
+        }
+        int loadId = this.loadId;
+        pendingLoad =
+                getExecutorService()
+                        .submit(
+                                () -> {
+                                    @Nullable
+                                    Bitmap bitmap =
+                                            ArtworkCache.getOrDecode(
+                                                    pictureData, targetWidth, targetHeight, bitmapConfig);
+                                    handler.post(() -> onLoadCompleted(loadId, bitmap, callback));
+                                });
+    }
+
+    /**
+     * Decodes {@code pictureData} into the {@link ArtworkCache} on the background thread, so that a
+     * later {@link #load} of the same picture for the same size doesn't need to decode it.
+     *
+     * @param pictureData  The encoded picture.
+     * @param targetWidth  The width to sample the picture down to, as returned by {@link
+     *                     #getTargetSize(View)}.
+     * @param targetHeight The height to sample the picture down to, as returned by {@link
+     *                     #getTargetSize(View)}.
+     * @param bitmapConfig The {@link Bitmap.Config} to decode to.
+     * @return A {@link Future} that can be used to cancel the prefetch.
+     */
+    public static Future<?> prefetch(
+            byte[] pictureData, int targetWidth, int targetHeight, Bitmap.Config bitmapConfig) {
+        return getExecutorService()
+                .submit(() -> ArtworkCache.getOrDecode(pictureData, targetWidth, targetHeight, bitmapConfig));
+    }
+
+    /**
+     * Returns the size artwork displayed in {@code targetView} is decoded for. This is the size of
+     * the view, or the display size if it hasn't been laid out.
+     */
+    public static Point getTargetSize(View targetView) {
+        int targetWidth = targetView.getWidth();
+        int targetHeight = targetView.getHeight();
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            DisplayMetrics displayMetrics = targetView.getResources().getDisplayMetrics();
+            targetWidth = displayMetrics.widthPixels;
+            targetHeight = displayMetrics.heightPixels;
+        }
+        return new Point(targetWidth, targetHeight);
+    }
+
+    /**
+     * Cancels the pending load, if any.
+     */
+    public void cancel() {
+        loadId++;
+        if (pendingLoad != null) {
+            pendingLoad.cancel(/* mayInterruptIfRunning= */ false);
+            pendingLoad = null;
+        }
+    }
+
+    /**
+     * Decodes {@code pictureData}, sampled down by the largest power of two that keeps it at least as
+     * large as the target size.
+     *
+     * @return The decoded bitmap, or null if the picture data couldn't be decoded.
+     */
+    @Nullable
+    public static Bitmap decode(
+            byte[] pictureData, int targetWidth, int targetHeight, Bitmap.Config bitmapConfig) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(pictureData, 0, pictureData.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= targetWidth
+                && options.outHeight / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = bitmapConfig;
+        return BitmapFactory.decodeByteArray(pictureData, 0, pictureData.length, options);
+    }
+
+    private void onLoadCompleted(int loadId, @Nullable Bitmap bitmap, Callback callback) {
+        if (loadId != this.loadId) {
+            // The load was cancelled after decoding finished.
+            return;
+        }
+        pendingLoad = null;
+        callback.onArtworkLoaded(bitmap);
+    }
+
+    private static synchronized ExecutorService getExecutorService() {
+        if (executorService == null) {
+            executorService = Util.newSingleThreadExecutor("ExoPlayer:ArtworkLoader");
+        }
+        return executorService;
+    }
+}
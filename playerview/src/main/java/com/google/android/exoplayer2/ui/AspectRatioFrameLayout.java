@@ -16,7 +16,9 @@
 package com.google.android.exoplayer2.ui;
 
 import android.content.Context;
+import android.graphics.Point;
 import android.util.AttributeSet;
+import android.view.ViewPropertyAnimator;
 import android.widget.FrameLayout;
 
 import androidx.annotation.IntDef;
@@ -28,6 +30,13 @@ import java.lang.annotation.RetentionPolicy;
 
 /**
  * A {@link FrameLayout} that resizes itself to match a specified aspect ratio.
+ *
+ * <p>During a {@link #beginResizeGesture() resize gesture}, such as pinching to switch between
+ * {@link #RESIZE_MODE_FIT} and {@link #RESIZE_MODE_ZOOM}, changes to the resize mode and aspect ratio
+ * are applied by scaling the view instead of measuring and laying it out again, and the layout is
+ * only committed when the gesture ends. Scaling is applied by the rendering pipeline, so it's only
+ * followed by children that are composited with the window, such as a {@link
+ * android.view.TextureView}.
  */
 public final class AspectRatioFrameLayout extends FrameLayout {
 
@@ -63,6 +72,11 @@ public final class AspectRatioFrameLayout extends FrameLayout {
      * to reduce power consumption.
      */
     private static final float MAX_ASPECT_RATIO_DEFORMATION_FRACTION = 0.01f;
+    /**
+     * The duration of the scale animation applied when the resize mode or aspect ratio changes during
+     * a resize gesture, in milliseconds.
+     */
+    private static final long RESIZE_GESTURE_ANIMATION_DURATION_MS = 150;
     private final AspectRatioUpdateDispatcher aspectRatioUpdateDispatcher;
     // LINT.ThenChange(../../../../../../res/values/attrs.xml)
     @Nullable
@@ -70,6 +84,14 @@ public final class AspectRatioFrameLayout extends FrameLayout {
     private float videoAspectRatio;
     @ResizeMode
     private int resizeMode;
+    private final Point resizedSize;
+    private int naturalWidth;
+    private int naturalHeight;
+    private boolean inResizeGesture;
+    private float resizeGestureScale;
+    private final Runnable commitResizeGestureRunnable;
+    private int measureCount;
+    private int layoutCount;
 
     public AspectRatioFrameLayout(Context context) {
         this(context, /* attrs= */ null);
@@ -79,6 +101,9 @@ public final class AspectRatioFrameLayout extends FrameLayout {
         super(context, attrs);
         resizeMode = RESIZE_MODE_FIT;
         aspectRatioUpdateDispatcher = new AspectRatioUpdateDispatcher();
+        resizedSize = new Point();
+        resizeGestureScale = 1;
+        commitResizeGestureRunnable = this::commitResizeGesture;
     }
 
     /**
@@ -89,7 +114,7 @@ public final class AspectRatioFrameLayout extends FrameLayout {
     public void setAspectRatio(float widthHeightRatio) {
         if (this.videoAspectRatio != widthHeightRatio) {
             this.videoAspectRatio = widthHeightRatio;
-            requestLayout();
+            onResizeParametersChanged();
         }
     }
 
@@ -119,27 +144,114 @@ public final class AspectRatioFrameLayout extends FrameLayout {
     public void setResizeMode(@ResizeMode int resizeMode) {
         if (this.resizeMode != resizeMode) {
             this.resizeMode = resizeMode;
-            requestLayout();
+            onResizeParametersChanged();
+        }
+    }
+
+    /**
+     * Starts a resize gesture. Until {@link #endResizeGesture()} is called, changes to the resize mode
+     * and aspect ratio are animated by scaling the view, without measuring or laying it out.
+     */
+    public void beginResizeGesture() {
+        inResizeGesture = true;
+        removeCallbacks(commitResizeGestureRunnable);
+        resizeGestureScale = 1;
+    }
+
+    /**
+     * Sets an additional scale to apply on top of the current resize mode during a resize gesture,
+     * for example to follow a pinch. Reset to 1 when the resize mode or aspect ratio changes.
+     *
+     * @param scale The scale, relative to the size for the current resize mode.
+     */
+    public void setResizeGestureScale(float scale) {
+        if (!inResizeGesture) {
+            return;
         }
+        resizeGestureScale = scale;
+        updateResizeGestureTransform(/* animate= */ false);
+    }
+
+    /**
+     * Ends a resize gesture. The view is animated to the size for the current resize mode and aspect
+     * ratio, and is then measured and laid out once at that size.
+     */
+    public void endResizeGesture() {
+        if (!inResizeGesture) {
+            return;
+        }
+        resizeGestureScale = 1;
+        if (getWidth() == 0 || getHeight() == 0) {
+            commitResizeGesture();
+            return;
+        }
+        updateResizeGestureTransform(/* animate= */ true);
+        // The layout is committed by a posted runnable rather than an end action, since the view
+        // property animator only runs the animation on the render thread if it has no end action.
+        postDelayed(commitResizeGestureRunnable, RESIZE_GESTURE_ANIMATION_DURATION_MS);
+    }
+
+    /**
+     * Returns the number of times this view has been measured. Together with {@link
+     * #getLayoutCount()}, this can be used to check that resize gestures don't cause relayouts.
+     */
+    public int getMeasureCount() {
+        return measureCount;
+    }
+
+    /**
+     * Returns the number of times this view has been laid out.
+     */
+    public int getLayoutCount() {
+        return layoutCount;
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        measureCount++;
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        naturalWidth = getMeasuredWidth();
+        naturalHeight = getMeasuredHeight();
         if (videoAspectRatio <= 0) {
             // Aspect ratio not set.
             return;
         }
 
-        int width = getMeasuredWidth();
-        int height = getMeasuredHeight();
-        float viewAspectRatio = (float) width / height;
-        float aspectDeformation = videoAspectRatio / viewAspectRatio - 1;
-        if (Math.abs(aspectDeformation) <= MAX_ASPECT_RATIO_DEFORMATION_FRACTION) {
+        float viewAspectRatio = (float) naturalWidth / naturalHeight;
+        if (!getResizedSize(naturalWidth, naturalHeight, resizedSize)) {
             // We're within the allowed tolerance.
             aspectRatioUpdateDispatcher.scheduleUpdate(videoAspectRatio, viewAspectRatio, false);
             return;
         }
+        aspectRatioUpdateDispatcher.scheduleUpdate(videoAspectRatio, viewAspectRatio, true);
+        super.onMeasure(MeasureSpec.makeMeasureSpec(resizedSize.x, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(resizedSize.y, MeasureSpec.EXACTLY));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        layoutCount++;
+        super.onLayout(changed, left, top, right, bottom);
+        if (changed && inResizeGesture) {
+            // The scale maps the previous size to the target size. The new size is only known once
+            // the view is laid out, so the scale is recomputed here rather than in onMeasure.
+            updateResizeGestureTransform(/* animate= */ false);
+        }
+    }
+
+    /**
+     * Returns the size of this view for the current resize mode and aspect ratio, given its natural
+     * size.
+     *
+     * @return Whether the natural aspect ratio differs enough from the target aspect ratio for the
+     * size to be adjusted. If false, {@code outSize} isn't set.
+     */
+    private boolean getResizedSize(int width, int height, Point outSize) {
+        float viewAspectRatio = (float) width / height;
+        float aspectDeformation = videoAspectRatio / viewAspectRatio - 1;
+        if (Math.abs(aspectDeformation) <= MAX_ASPECT_RATIO_DEFORMATION_FRACTION) {
+            return false;
+        }
 
         switch (resizeMode) {
             case RESIZE_MODE_FIXED_WIDTH:
@@ -167,9 +279,56 @@ public final class AspectRatioFrameLayout extends FrameLayout {
                 // Ignore target aspect ratio
                 break;
         }
-        aspectRatioUpdateDispatcher.scheduleUpdate(videoAspectRatio, viewAspectRatio, true);
-        super.onMeasure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
-                MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+        outSize.set(width, height);
+        return true;
+    }
+
+    private void onResizeParametersChanged() {
+        if (inResizeGesture) {
+            resizeGestureScale = 1;
+            updateResizeGestureTransform(/* animate= */ true);
+        } else {
+            requestLayout();
+        }
+    }
+
+    /**
+     * Scales the view from its laid out size to the size for the current resize mode, aspect ratio
+     * and gesture scale.
+     */
+    private void updateResizeGestureTransform(boolean animate) {
+        ViewPropertyAnimator animator = animate();
+        int width = getWidth();
+        int height = getHeight();
+        if (width == 0 || height == 0 || naturalWidth == 0 || naturalHeight == 0) {
+            // Not laid out yet, so there's nothing to transform.
+            return;
+        }
+        int targetWidth = naturalWidth;
+        int targetHeight = naturalHeight;
+        if (videoAspectRatio > 0 && getResizedSize(naturalWidth, naturalHeight, resizedSize)) {
+            targetWidth = resizedSize.x;
+            targetHeight = resizedSize.y;
+        }
+        float scaleX = resizeGestureScale * targetWidth / width;
+        float scaleY = resizeGestureScale * targetHeight / height;
+        if (animate) {
+            animator.scaleX(scaleX).scaleY(scaleY).setDuration(RESIZE_GESTURE_ANIMATION_DURATION_MS);
+        } else {
+            animator.cancel();
+            setScaleX(scaleX);
+            setScaleY(scaleY);
+        }
+    }
+
+    private void commitResizeGesture() {
+        inResizeGesture = false;
+        removeCallbacks(commitResizeGestureRunnable);
+        animate().cancel();
+        // The scale is reset in the same frame as the new layout is applied.
+        setScaleX(1);
+        setScaleY(1);
+        requestLayout();
     }
 
     /**
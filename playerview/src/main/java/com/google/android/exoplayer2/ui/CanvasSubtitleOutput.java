@@ -20,6 +20,7 @@ import static com.google.android.exoplayer2.ui.SubtitleView.DEFAULT_TEXT_SIZE_FR
 
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.util.AttributeSet;
 import android.view.View;
 
@@ -34,6 +35,9 @@ import java.util.List;
 /**
  * A {@link SubtitleView.Output} that uses Android's native layout framework via {@link
  * SubtitlePainter}.
+ *
+ * <p>Cue updates only invalidate the area covered by the previous and new cues, and are ignored
+ * entirely if the new cues render identically to the ones already drawn.
  */
 /* package */ final class CanvasSubtitleOutput extends View implements SubtitleView.Output {
 
@@ -46,6 +50,14 @@ import java.util.List;
     private CaptionStyleCompat style;
     private float bottomPaddingFraction;
 
+    // Union of the areas drawn by the current cues, and scratch rects used to compute invalidations.
+    private final Rect drawnBounds;
+    private final Rect newDrawnBounds;
+    private final Rect dirtyBounds;
+
+    @Nullable
+    private SubtitleBitmapPool bitmapPool;
+
     public CanvasSubtitleOutput(Context context) {
         this(context, /* attrs= */ null);
     }
@@ -58,6 +70,48 @@ import java.util.List;
         textSize = DEFAULT_TEXT_SIZE_FRACTION;
         style = CaptionStyleCompat.DEFAULT;
         bottomPaddingFraction = DEFAULT_BOTTOM_PADDING_FRACTION;
+        drawnBounds = new Rect();
+        newDrawnBounds = new Rect();
+        dirtyBounds = new Rect();
+    }
+
+    /**
+     * Sets the memory budget for bitmaps into which styled text cues are rasterized once and then
+     * blitted on later draws, or 0 to always draw text cues directly. Disabled by default.
+     *
+     * <p>The bitmaps are dropped when the system asks the process to trim memory.
+     *
+     * @param maxSizeBytes The maximum size of the rasterized cues, in bytes.
+     */
+    public void setBitmapCacheSize(int maxSizeBytes) {
+        if (bitmapPool != null) {
+            getContext().getApplicationContext().unregisterComponentCallbacks(bitmapPool);
+        }
+        bitmapPool = maxSizeBytes > 0 ? new SubtitleBitmapPool(maxSizeBytes) : null;
+        if (bitmapPool != null && isAttachedToWindow()) {
+            getContext().getApplicationContext().registerComponentCallbacks(bitmapPool);
+        }
+        for (int i = 0; i < painters.size(); i++) {
+            painters.get(i).setBitmapPool(bitmapPool);
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (bitmapPool != null) {
+            getContext().getApplicationContext().registerComponentCallbacks(bitmapPool);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (bitmapPool != null) {
+            getContext().getApplicationContext().unregisterComponentCallbacks(bitmapPool);
+            bitmapPool.clear();
+        }
     }
 
     /**
@@ -75,7 +129,7 @@ import java.util.List;
      * alignment), so we clear these and allow {@link SubtitlePainter} to do the default behaviour of
      * centering the cue.
      */
-    private static Cue repositionVerticalCue(Cue cue) {
+    /* package */ static Cue repositionVerticalCue(Cue cue) {
         Cue.Builder cueBuilder =
                 cue.buildUpon()
                         .setPosition(Cue.DIMEN_UNSET)
@@ -102,6 +156,7 @@ import java.util.List;
         return cueBuilder.build();
     }
 
+    @SuppressWarnings("deprecation") // Dirty rects are still honored by software rendering.
     @Override
     public void update(
             List<Cue> cues,
@@ -109,6 +164,7 @@ import java.util.List;
             float textSize,
             @Cue.TextSizeType int textSizeType,
             float bottomPaddingFraction) {
+        boolean cueCountChanged = cues.size() != this.cues.size();
         this.cues = cues;
         this.style = style;
         this.textSize = textSize;
@@ -116,18 +172,49 @@ import java.util.List;
         this.bottomPaddingFraction = bottomPaddingFraction;
         // Ensure we have sufficient painters.
         while (painters.size() < cues.size()) {
-            painters.add(new SubtitlePainter(getContext()));
+            SubtitlePainter painter = new SubtitlePainter(getContext());
+            painter.setBitmapPool(bitmapPool);
+            painters.add(painter);
+        }
+        if (getWidth() == 0 || getHeight() == 0) {
+            // Not laid out yet, so there are no bounds to compare. Invalidate to trigger drawing.
+            invalidate();
+            return;
+        }
+        boolean layoutChanged = layoutCues(newDrawnBounds);
+        if (!layoutChanged && !cueCountChanged) {
+            // The cues render identically to the ones already drawn.
+            return;
+        }
+        // Invalidate the area covered by both the previous and the new cues.
+        dirtyBounds.set(drawnBounds);
+        dirtyBounds.union(newDrawnBounds);
+        drawnBounds.set(newDrawnBounds);
+        if (!dirtyBounds.isEmpty()) {
+            invalidate(dirtyBounds);
         }
-        // Invalidate to trigger drawing.
-        invalidate();
     }
 
     @Override
     public void dispatchDraw(Canvas canvas) {
-        @Nullable List<Cue> cues = this.cues;
-        if (cues.isEmpty()) {
-            return;
+        layoutCues(drawnBounds);
+        int cueCount = cues.size();
+        for (int i = 0; i < cueCount; i++) {
+            painters.get(i).draw(canvas);
         }
+    }
+
+    /**
+     * Lays out {@link #cues} using {@link #painters}, without drawing them.
+     *
+     * @param outBounds Receives the union of the areas that will be drawn by the cues.
+     * @return Whether the output of any painter may have changed since it was last laid out.
+     */
+    private boolean layoutCues(Rect outBounds) {
+        outBounds.setEmpty();
+        List<Cue> cues = this.cues;
+        int cueCount = cues.size();
+        boolean changed = false;
 
         int rawViewHeight = getHeight();
 
@@ -136,21 +223,19 @@ import java.util.List;
         int top = getPaddingTop();
         int right = getWidth() - getPaddingRight();
         int bottom = rawViewHeight - getPaddingBottom();
-        if (bottom <= top || right <= left) {
-            // No space to draw subtitles.
-            return;
-        }
         int viewHeightMinusPadding = bottom - top;
 
         float defaultViewTextSizePx =
                 SubtitleViewUtils.resolveTextSize(
                         textSizeType, textSize, rawViewHeight, viewHeightMinusPadding);
-        if (defaultViewTextSizePx <= 0) {
-            // Text has no height.
-            return;
+        if (bottom <= top || right <= left || defaultViewTextSizePx <= 0) {
+            // No space to draw subtitles, or text has no height.
+            for (int i = 0; i < cueCount; i++) {
+                changed |= painters.get(i).clear();
+            }
+            return changed;
         }
 
-        int cueCount = cues.size();
         for (int i = 0; i < cueCount; i++) {
             Cue cue = cues.get(i);
             if (cue.verticalType != Cue.TYPE_UNSET) {
@@ -160,17 +245,19 @@ import java.util.List;
                     SubtitleViewUtils.resolveTextSize(
                             cue.textSizeType, cue.textSize, rawViewHeight, viewHeightMinusPadding);
             SubtitlePainter painter = painters.get(i);
-            painter.draw(
-                    cue,
-                    style,
-                    defaultViewTextSizePx,
-                    cueTextSizePx,
-                    bottomPaddingFraction,
-                    canvas,
-                    left,
-                    top,
-                    right,
-                    bottom);
+            changed |=
+                    painter.layout(
+                            cue,
+                            style,
+                            defaultViewTextSizePx,
+                            cueTextSizePx,
+                            bottomPaddingFraction,
+                            left,
+                            top,
+                            right,
+                            bottom);
+            outBounds.union(painter.getBounds());
         }
+        return changed;
     }
 }
@@ -18,26 +18,52 @@ package com.google.android.exoplayer2.ui;
 import android.content.res.Resources;
 import android.text.TextUtils;
 
+import androidx.annotation.Nullable;
+
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.util.Assertions;
 import com.google.android.exoplayer2.util.MimeTypes;
 import com.google.android.exoplayer2.util.Util;
 
+import java.util.HashMap;
 import java.util.Locale;
 
 /**
  * A default {@link TrackNameProvider}.
+ *
+ * <p>Track names are cached, keyed by the {@link Format} fields they're built from, so that views
+ * that repeatedly ask for the names of the same formats don't rebuild them. Language display names
+ * are cached separately by language tag. Both caches are cleared when the default {@link Locale}
+ * changes, and can be cleared explicitly with {@link #clearCache()}, for example on configuration
+ * changes.
  */
 public class DefaultTrackNameProvider implements TrackNameProvider {
 
+    private static final int MAX_CACHED_TRACK_NAMES = 256;
+
     private final Resources resources;
+    private final HashMap<TrackNameKey, String> trackNames;
+    private final HashMap<String, String> languageDisplayNames;
+    @Nullable
+    private Locale cacheLocale;
 
     /**
      * @param resources Resources from which to obtain strings.
      */
     public DefaultTrackNameProvider(Resources resources) {
         this.resources = Assertions.checkNotNull(resources);
+        trackNames = new HashMap<>();
+        languageDisplayNames = new HashMap<>();
+    }
+
+    /**
+     * Clears the cached track and language names.
+     */
+    public void clearCache() {
+        trackNames.clear();
+        languageDisplayNames.clear();
+        cacheLocale = null;
     }
 
     private static int inferPrimaryTrackType(Format format) {
@@ -62,6 +88,24 @@ public class DefaultTrackNameProvider implements TrackNameProvider {
 
     @Override
     public String getTrackName(Format format) {
+        Locale locale = Locale.getDefault();
+        if (!locale.equals(cacheLocale)) {
+            clearCache();
+            cacheLocale = locale;
+        }
+        TrackNameKey key = new TrackNameKey(format);
+        @Nullable String trackName = trackNames.get(key);
+        if (trackName == null) {
+            trackName = buildTrackName(format);
+            if (trackNames.size() >= MAX_CACHED_TRACK_NAMES) {
+                trackNames.clear();
+            }
+            trackNames.put(key, trackName);
+        }
+        return trackName;
+    }
+
+    private String buildTrackName(Format format) {
         String trackName;
         int trackType = inferPrimaryTrackType(format);
         if (trackType == C.TRACK_TYPE_VIDEO) {
@@ -130,8 +174,13 @@ public class DefaultTrackNameProvider implements TrackNameProvider {
         if (TextUtils.isEmpty(language) || C.LANGUAGE_UNDETERMINED.equals(language)) {
             return "";
         }
-        Locale locale = Util.SDK_INT >= 21 ? Locale.forLanguageTag(language) : new Locale(language);
-        return locale.getDisplayName();
+        @Nullable String displayName = languageDisplayNames.get(language);
+        if (displayName == null) {
+            Locale locale = Util.SDK_INT >= 21 ? Locale.forLanguageTag(language) : new Locale(language);
+            displayName = locale.getDisplayName();
+            languageDisplayNames.put(language, displayName);
+        }
+        return displayName;
     }
 
     private String buildRoleString(Format format) {
@@ -165,4 +214,74 @@ public class DefaultTrackNameProvider implements TrackNameProvider {
         }
         return itemList;
     }
+
+    /**
+     * The {@link Format} fields that track names are built from.
+     */
+    private static final class TrackNameKey {
+
+        @Nullable
+        private final String sampleMimeType;
+        @Nullable
+        private final String codecs;
+        private final int width;
+        private final int height;
+        private final int channelCount;
+        private final int sampleRate;
+        private final int bitrate;
+        @Nullable
+        private final String language;
+        @Nullable
+        private final String label;
+        private final int roleFlags;
+
+        public TrackNameKey(Format format) {
+            sampleMimeType = format.sampleMimeType;
+            codecs = format.codecs;
+            width = format.width;
+            height = format.height;
+            channelCount = format.channelCount;
+            sampleRate = format.sampleRate;
+            bitrate = format.bitrate;
+            language = format.language;
+            label = format.label;
+            roleFlags = format.roleFlags;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            TrackNameKey other = (TrackNameKey) obj;
+            return width == other.width
+                    && height == other.height
+                    && channelCount == other.channelCount
+                    && sampleRate == other.sampleRate
+                    && bitrate == other.bitrate
+                    && roleFlags == other.roleFlags
+                    && Util.areEqual(sampleMimeType, other.sampleMimeType)
+                    && Util.areEqual(codecs, other.codecs)
+                    && Util.areEqual(language, other.language)
+                    && Util.areEqual(label, other.label);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = sampleMimeType != null ? sampleMimeType.hashCode() : 0;
+            result = 31 * result + (codecs != null ? codecs.hashCode() : 0);
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + channelCount;
+            result = 31 * result + sampleRate;
+            result = 31 * result + bitrate;
+            result = 31 * result + (language != null ? language.hashCode() : 0);
+            result = 31 * result + (label != null ? label.hashCode() : 0);
+            result = 31 * result + roleFlags;
+            return result;
+        }
+    }
 }
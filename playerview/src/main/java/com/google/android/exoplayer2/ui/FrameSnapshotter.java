@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.PixelCopy;
+import android.view.Surface;
+import android.view.SurfaceView;
+import android.view.TextureView;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import com.google.android.exoplayer2.util.Log;
+import com.google.android.exoplayer2.util.Util;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Captures the frame shown by a video surface view into bitmaps taken from a pool keyed by size.
+ *
+ * <p>Frames are read back from a {@link TextureView} with {@link TextureView#getBitmap(Bitmap)}, and
+ * from a {@link SurfaceView} with {@link PixelCopy} on API 24 and above. Results are delivered on a
+ * shared background thread. Bitmaps handed back through {@link #release(Bitmap)} are reused by later
+ * snapshots of the same size, so repeatedly capturing thumbnails doesn't allocate a new bitmap each
+ * time.
+ */
+/* package */ final class FrameSnapshotter {
+
+    private static final String TAG = "FrameSnapshotter";
+
+    /**
+     * The maximum number of released bitmaps kept for each size.
+     */
+    private static final int MAX_POOLED_BITMAPS_PER_SIZE = 2;
+
+    @Nullable
+    private static Handler callbackHandler;
+
+    private final Map<Long, ArrayDeque<Bitmap>> pool;
+
+    public FrameSnapshotter() {
+        pool = new HashMap<>();
+    }
+
+    /**
+     * Captures the frame shown by {@code surfaceView}. Must be called on the main thread.
+     *
+     * @param surfaceView The view onto which video is rendered.
+     * @param width       The width of the snapshot. The frame is scaled to fit.
+     * @param height      The height of the snapshot. The frame is scaled to fit.
+     * @param callback    The callback to receive the snapshot on a background thread.
+     */
+    public void snapshot(
+            @Nullable View surfaceView,
+            int width,
+            int height,
+            StyledPlayerView.SnapshotCallback callback) {
+        Handler callbackHandler = getCallbackHandler();
+        if (width <= 0 || height <= 0) {
+            callbackHandler.post(() -> callback.onSnapshotTaken(null));
+            return;
+        }
+        if (surfaceView instanceof TextureView && ((TextureView) surfaceView).isAvailable()) {
+            Bitmap bitmap = acquire(width, height);
+            // Reading back the texture has to happen on the main thread.
+            ((TextureView) surfaceView).getBitmap(bitmap);
+            callbackHandler.post(() -> callback.onSnapshotTaken(bitmap));
+        } else if (surfaceView instanceof SurfaceView && Util.SDK_INT >= 24) {
+            snapshotV24((SurfaceView) surfaceView, width, height, callbackHandler, callback);
+        } else {
+            callbackHandler.post(() -> callback.onSnapshotTaken(null));
+        }
+    }
+
+    /**
+     * Returns a bitmap delivered by {@link #snapshot} to the pool. May be called on any thread. The
+     * bitmap must not be used afterwards.
+     */
+    public void release(Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        long key = getKey(bitmap.getWidth(), bitmap.getHeight());
+        synchronized (pool) {
+            @Nullable ArrayDeque<Bitmap> bitmaps = pool.get(key);
+            if (bitmaps == null) {
+                bitmaps = new ArrayDeque<>();
+                pool.put(key, bitmaps);
+            }
+            if (bitmaps.size() < MAX_POOLED_BITMAPS_PER_SIZE) {
+                bitmaps.push(bitmap);
+            }
+        }
+    }
+
+    /**
+     * Removes all bitmaps from the pool.
+     */
+    public void clear() {
+        synchronized (pool) {
+            pool.clear();
+        }
+    }
+
+    @RequiresApi(24)
+    private void snapshotV24(
+            SurfaceView surfaceView,
+            int width,
+            int height,
+            Handler callbackHandler,
+            StyledPlayerView.SnapshotCallback callback) {
+        Surface surface = surfaceView.getHolder().getSurface();
+        if (surface == null || !surface.isValid()) {
+            callbackHandler.post(() -> callback.onSnapshotTaken(null));
+            return;
+        }
+        Bitmap bitmap = acquire(width, height);
+        try {
+            PixelCopy.request(
+                    surfaceView,
+                    bitmap,
+                    copyResult -> {
+                        if (copyResult == PixelCopy.SUCCESS) {
+                            callback.onSnapshotTaken(bitmap);
+                        } else {
+                            Log.w(TAG, "Failed to copy video frame: " + copyResult);
+                            release(bitmap);
+                            callback.onSnapshotTaken(null);
+                        }
+                    },
+                    callbackHandler);
+        } catch (IllegalArgumentException e) {
+            // The surface was released concurrently.
+            Log.w(TAG, "Failed to copy video frame", e);
+            release(bitmap);
+            callbackHandler.post(() -> callback.onSnapshotTaken(null));
+        }
+    }
+
+    private Bitmap acquire(int width, int height) {
+        synchronized (pool) {
+            @Nullable ArrayDeque<Bitmap> bitmaps = pool.get(getKey(width, height));
+            if (bitmaps != null && !bitmaps.isEmpty()) {
+                return bitmaps.pop();
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private static long getKey(int width, int height) {
+        return ((long) width << 32) | height;
+    }
+
+    private static synchronized Handler getCallbackHandler() {
+        if (callbackHandler == null) {
+            HandlerThread callbackThread = new HandlerThread("ExoPlayer:FrameSnapshotter");
+            callbackThread.start();
+            callbackHandler = new Handler(callbackThread.getLooper());
+        }
+        return callbackHandler;
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import android.graphics.Rect;
+import android.os.Handler;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.google.android.exoplayer2.util.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Suspends video while the view that displays it can't be seen, for example when it's scrolled off
+ * screen, its window is hidden or the activity is paused with audio still playing.
+ *
+ * <p>While suspended, the video renderers of the player are disabled through its {@link
+ * DefaultTrackSelector}, so no video is decoded. Renderers that were already disabled are left
+ * alone, and only the renderers disabled here are enabled again when the view becomes visible.
+ * Suspending is delayed by {@link #SUSPEND_DELAY_MS}, so that briefly hiding the view doesn't cause
+ * the video decoder to be released and recreated. Resuming is immediate.
+ */
+/* package */ final class HiddenVideoSuspender
+        implements View.OnAttachStateChangeListener,
+        ViewTreeObserver.OnScrollChangedListener,
+        ViewTreeObserver.OnGlobalLayoutListener {
+
+    /**
+     * Receives notifications when video is suspended or resumed.
+     */
+    public interface Listener {
+
+        /**
+         * Called when video is suspended or resumed.
+         *
+         * @param suspended Whether video is suspended.
+         */
+        void onVideoSuspendedChanged(boolean suspended);
+    }
+
+    /**
+     * The time for which the view must stay hidden before video is suspended, in milliseconds.
+     */
+    public static final long SUSPEND_DELAY_MS = 1000;
+
+    private final View view;
+    private final Listener listener;
+    private final Handler handler;
+    private final Runnable suspendRunnable;
+    private final Rect visibleRect;
+    private final List<Integer> disabledRendererIndices;
+
+    @Nullable
+    private ExoPlayer player;
+    @Nullable
+    private DefaultTrackSelector trackSelector;
+    private boolean enabled;
+    private boolean paused;
+    private boolean suspendPending;
+    private boolean suspended;
+    private boolean observingViewTree;
+
+    /**
+     * @param view     The view that displays the video.
+     * @param listener The listener to notify when video is suspended or resumed.
+     */
+    public HiddenVideoSuspender(View view, Listener listener) {
+        this.view = view;
+        this.listener = listener;
+        handler = Util.createHandlerForCurrentLooper();
+        suspendRunnable = () -> setSuspended(true);
+        visibleRect = new Rect();
+        disabledRendererIndices = new ArrayList<>();
+    }
+
+    /**
+     * Sets whether video is suspended while the view is hidden. Disabling resumes video immediately.
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled == enabled) {
+            return;
+        }
+        this.enabled = enabled;
+        if (enabled) {
+            view.addOnAttachStateChangeListener(this);
+            if (view.isAttachedToWindow()) {
+                startObservingViewTree();
+            }
+        } else {
+            view.removeOnAttachStateChangeListener(this);
+            stopObservingViewTree();
+        }
+        update();
+    }
+
+    /**
+     * Sets the player whose video is suspended, moving the suspension from the previous player.
+     *
+     * @param player        The player, or null if the player isn't an {@link ExoPlayer} or there's no
+     *                      player.
+     * @param trackSelector The {@link DefaultTrackSelector} of the player, or null if it doesn't have
+     *                      one. Video of players without one can't be suspended by disabling renderers,
+     *                      so the {@link Listener} has to stop rendering it in some other way.
+     */
+    public void setPlayer(@Nullable ExoPlayer player, @Nullable DefaultTrackSelector trackSelector) {
+        if (this.player == player && this.trackSelector == trackSelector) {
+            return;
+        }
+        if (suspended) {
+            enableRenderers();
+        }
+        this.player = player;
+        this.trackSelector = trackSelector;
+        if (suspended) {
+            disableRenderers();
+        }
+    }
+
+    /**
+     * Sets whether the activity is paused. Video is suspended while it's paused.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        update();
+    }
+
+    /**
+     * Returns whether video is suspended.
+     */
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    /**
+     * Suspends or resumes video according to the current visibility of the view.
+     */
+    public void update() {
+        if (!enabled || isViewVisible()) {
+            handler.removeCallbacks(suspendRunnable);
+            suspendPending = false;
+            setSuspended(false);
+        } else if (!suspended && !suspendPending) {
+            suspendPending = true;
+            handler.postDelayed(suspendRunnable, SUSPEND_DELAY_MS);
+        }
+    }
+
+    // View.OnAttachStateChangeListener implementation.
+
+    @Override
+    public void onViewAttachedToWindow(View view) {
+        startObservingViewTree();
+        update();
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View view) {
+        stopObservingViewTree();
+        update();
+    }
+
+    // ViewTreeObserver.OnScrollChangedListener implementation.
+
+    @Override
+    public void onScrollChanged() {
+        update();
+    }
+
+    // ViewTreeObserver.OnGlobalLayoutListener implementation.
+
+    @Override
+    public void onGlobalLayout() {
+        update();
+    }
+
+    private boolean isViewVisible() {
+        return !paused
+                && view.isAttachedToWindow()
+                && view.getWindowVisibility() == View.VISIBLE
+                && view.isShown()
+                && view.getGlobalVisibleRect(visibleRect);
+    }
+
+    private void setSuspended(boolean suspended) {
+        suspendPending = false;
+        if (this.suspended == suspended) {
+            return;
+        }
+        this.suspended = suspended;
+        if (suspended) {
+            disableRenderers();
+        } else {
+            enableRenderers();
+        }
+        listener.onVideoSuspendedChanged(suspended);
+    }
+
+    private void disableRenderers() {
+        @Nullable ExoPlayer player = this.player;
+        @Nullable DefaultTrackSelector trackSelector = this.trackSelector;
+        if (player == null || trackSelector == null) {
+            return;
+        }
+        DefaultTrackSelector.Parameters parameters = trackSelector.getParameters();
+        DefaultTrackSelector.ParametersBuilder parametersBuilder = parameters.buildUpon();
+        for (int i = 0; i < player.getRendererCount(); i++) {
+            if (player.getRendererType(i) == C.TRACK_TYPE_VIDEO && !parameters.getRendererDisabled(i)) {
+                parametersBuilder.setRendererDisabled(i, true);
+                disabledRendererIndices.add(i);
+            }
+        }
+        if (!disabledRendererIndices.isEmpty()) {
+            trackSelector.setParameters(parametersBuilder);
+        }
+    }
+
+    private void enableRenderers() {
+        @Nullable DefaultTrackSelector trackSelector = this.trackSelector;
+        if (trackSelector == null || disabledRendererIndices.isEmpty()) {
+            disabledRendererIndices.clear();
+            return;
+        }
+        DefaultTrackSelector.ParametersBuilder parametersBuilder = trackSelector.buildUponParameters();
+        for (int i = 0; i < disabledRendererIndices.size(); i++) {
+            parametersBuilder.setRendererDisabled(disabledRendererIndices.get(i), false);
+        }
+        disabledRendererIndices.clear();
+        trackSelector.setParameters(parametersBuilder);
+    }
+
+    private void startObservingViewTree() {
+        if (observingViewTree) {
+            return;
+        }
+        observingViewTree = true;
+        ViewTreeObserver viewTreeObserver = view.getViewTreeObserver();
+        viewTreeObserver.addOnScrollChangedListener(this);
+        viewTreeObserver.addOnGlobalLayoutListener(this);
+    }
+
+    private void stopObservingViewTree() {
+        if (!observingViewTree) {
+            return;
+        }
+        observingViewTree = false;
+        ViewTreeObserver viewTreeObserver = view.getViewTreeObserver();
+        viewTreeObserver.removeOnScrollChangedListener(this);
+        viewTreeObserver.removeOnGlobalLayoutListener(this);
+    }
+}
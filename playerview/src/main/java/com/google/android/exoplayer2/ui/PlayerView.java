@@ -21,10 +21,10 @@ import static com.google.android.exoplayer2.Player.COMMAND_SET_VIDEO_SURFACE;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.RectF;
+import android.graphics.SurfaceTexture;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.opengl.GLSurfaceView;
@@ -52,9 +52,6 @@ import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.Player.DiscontinuityReason;
 import com.google.android.exoplayer2.Timeline;
 import com.google.android.exoplayer2.Timeline.Period;
-import com.google.android.exoplayer2.metadata.Metadata;
-import com.google.android.exoplayer2.metadata.flac.PictureFrame;
-import com.google.android.exoplayer2.metadata.id3.ApicFrame;
 import com.google.android.exoplayer2.source.TrackGroupArray;
 import com.google.android.exoplayer2.text.Cue;
 import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
@@ -279,16 +276,15 @@ public class PlayerView extends FrameLayout implements AdViewProvider {
     public static final int SURFACE_TYPE_TEXTURE_VIEW = 2;
     public static final int SURFACE_TYPE_SPHERICAL_GL_SURFACE_VIEW = 3;
     public static final int SURFACE_TYPE_VIDEO_DECODER_GL_SURFACE_VIEW = 4;
-    private static final int PICTURE_TYPE_FRONT_COVER = 3;
     // LINT.ThenChange(../../../../../../res/values/attrs.xml)
-    private static final int PICTURE_TYPE_NOT_SET = -1;
     private final ComponentListener componentListener;
+    private final ArtworkLoader artworkLoader;
     @Nullable
     private final AspectRatioFrameLayout contentFrame;
     @Nullable
     private final View shutterView;
     @Nullable
-    private final View surfaceView;
+    private View surfaceView;
     private final boolean surfaceViewIgnoresVideoAspectRatio;
     @Nullable
     private final ImageView artworkView;
@@ -312,6 +308,7 @@ public class PlayerView extends FrameLayout implements AdViewProvider {
     private boolean useArtwork;
     @Nullable
     private Drawable defaultArtwork;
+    private Bitmap.Config artworkBitmapConfig;
     private int showBuffering;
     private boolean keepContentOnPlayerReset;
     @Nullable
@@ -340,6 +337,7 @@ public class PlayerView extends FrameLayout implements AdViewProvider {
         setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
 
         componentListener = new ComponentListener();
+        artworkLoader = new ArtworkLoader();
 
         if (isInEditMode()) {
             contentFrame = null;
@@ -416,6 +414,7 @@ public class PlayerView extends FrameLayout implements AdViewProvider {
         this.surfaceViewIgnoresVideoAspectRatio = surfaceViewIgnoresVideoAspectRatio;
 
         this.useArtwork = useArtwork;
+        this.artworkBitmapConfig = Bitmap.Config.ARGB_8888;
         this.showBuffering = showBuffering;
         this.controllerShowTimeoutMs = controllerShowTimeoutMs;
         this.controllerHideOnTouch = controllerHideOnTouch;
@@ -451,11 +450,100 @@ public class PlayerView extends FrameLayout implements AdViewProvider {
         }
     }
 
+    /**
+     * Switches the view targeted by a given {@link Player}, handing the {@link TextureView} that
+     * displays the video over to the new view so that the transition doesn't show a black frame.
+     *
+     * <p>The texture view of the old view is moved to the new view, keeping the {@link
+     * SurfaceTexture} that the player renders into, so the new view shows the current frame
+     * immediately. The texture view the new view no longer needs is returned to a pool of spare
+     * texture views, and the old view takes one from that pool for its next player.
+     * This is useful for transitions between a feed and a fullscreen view, where both views are
+     * attached. If either view doesn't use {@code texture_view} as its {@code surface_type}, the old
+     * view isn't the player's current target, or the texture isn't available yet, this method
+     * behaves like {@link #switchTargetView(Player, PlayerView, PlayerView)}.
+     *
+     * @param player        The player whose target view is being switched.
+     * @param oldPlayerView The view currently targeted by the player.
+     * @param newPlayerView The new view to attach to the player.
+     */
+    public static void handOffTargetView(
+            Player player, PlayerView oldPlayerView, PlayerView newPlayerView) {
+        if (oldPlayerView == newPlayerView) {
+            return;
+        }
+        @Nullable AspectRatioFrameLayout oldContentFrame = oldPlayerView.contentFrame;
+        @Nullable AspectRatioFrameLayout newContentFrame = newPlayerView.contentFrame;
+        @Nullable
+        SurfaceTexture surfaceTexture =
+                oldPlayerView.surfaceView instanceof TextureView
+                        ? ((TextureView) oldPlayerView.surfaceView).getSurfaceTexture()
+                        : null;
+        if (oldPlayerView.player != player
+                || newPlayerView.player == player
+                || oldContentFrame == null
+                || newContentFrame == null
+                || !(newPlayerView.surfaceView instanceof TextureView)
+                || surfaceTexture == null) {
+            switchTargetView(player, oldPlayerView, newPlayerView);
+            return;
+        }
+        if (newPlayerView.player != null) {
+            // Detach the new view's current player while its own texture view is still in place.
+            newPlayerView.setPlayer(null);
+        }
+        TextureView textureView = (TextureView) oldPlayerView.surfaceView;
+        TextureView unusedTextureView = (TextureView) newPlayerView.surfaceView;
+        oldPlayerView.clearTextureViewRotation();
+        newPlayerView.clearTextureViewRotation();
+        ViewGroup.LayoutParams oldLayoutParams = textureView.getLayoutParams();
+        ViewGroup.LayoutParams newLayoutParams = unusedTextureView.getLayoutParams();
+
+        // Keep the surface texture alive while the texture view is detached, so the player can
+        // continue rendering into it without the surface being destroyed.
+        @Nullable
+        TextureView.SurfaceTextureListener playerListener = textureView.getSurfaceTextureListener();
+        textureView.setSurfaceTextureListener(new RetainingSurfaceTextureListener(playerListener));
+        oldContentFrame.removeView(textureView);
+        // The new view's texture view goes back to the pool, and the old view gets one from it.
+        VideoSurfacePool.release(unusedTextureView);
+        TextureView replacementTextureView = VideoSurfacePool.acquire(oldPlayerView.getContext());
+        newContentFrame.addView(textureView, 0, newLayoutParams);
+        oldContentFrame.addView(replacementTextureView, 0, oldLayoutParams);
+        textureView.setSurfaceTexture(surfaceTexture);
+        textureView.setSurfaceTextureListener(playerListener);
+
+        textureView.setOnClickListener(newPlayerView.componentListener);
+        replacementTextureView.setOnClickListener(oldPlayerView.componentListener);
+        oldPlayerView.surfaceView = replacementTextureView;
+        newPlayerView.surfaceView = textureView;
+
+        // The player already renders into the texture view, so only the views change players.
+        // Setting the texture view on the player again would create a second surface for it.
+        newPlayerView.setPlayer(player, /* updateVideoOutput= */ false);
+        oldPlayerView.setPlayer(null, /* updateVideoOutput= */ false);
+        newPlayerView.componentListener.onVideoSizeChanged(player.getVideoSize());
+        if (newPlayerView.shutterView != null
+                && TrackSelectionUtil.hasTrackOfType(
+                player.getCurrentTrackSelections(), C.TRACK_TYPE_VIDEO)) {
+            // The texture view already shows the current frame.
+            newPlayerView.shutterView.setVisibility(INVISIBLE);
+        }
+    }
+
     @SuppressWarnings("ResourceType")
     private static void setResizeModeRaw(AspectRatioFrameLayout aspectRatioFrame, int resizeMode) {
         aspectRatioFrame.setResizeMode(resizeMode);
     }
 
+    private void clearTextureViewRotation() {
+        if (surfaceView instanceof TextureView && textureViewRotation != 0) {
+            surfaceView.removeOnLayoutChangeListener(componentListener);
+            textureViewRotation = 0;
+            applyTextureViewRotation((TextureView) surfaceView, textureViewRotation);
+        }
+    }
+
     /**
      * Applies a texture rotation to a {@link TextureView}.
      */
@@ -511,6 +599,17 @@ public class PlayerView extends FrameLayout implements AdViewProvider {
      *               player.getApplicationLooper() == Looper.getMainLooper()}).
      */
     public void setPlayer(@Nullable Player player) {
+        setPlayer(player, /* updateVideoOutput= */ true);
+    }
+
+    /**
+     * Sets the {@link Player} to use.
+     *
+     * @param player            The {@link Player} to use, or {@code null} to detach the current player.
+     * @param updateVideoOutput Whether to clear the video output of the previous player and set it on
+     *                          the new one. False if the video output has been handed over already.
+     */
+    private void setPlayer(@Nullable Player player, boolean updateVideoOutput) {
         Assertions.checkState(Looper.myLooper() == Looper.getMainLooper());
         Assertions.checkArgument(
                 player == null || player.getApplicationLooper() == Looper.getMainLooper());
@@ -520,7 +619,7 @@ public class PlayerView extends FrameLayout implements AdViewProvider {
         @Nullable Player oldPlayer = this.player;
         if (oldPlayer != null) {
             oldPlayer.removeListener(componentListener);
-            if (oldPlayer.isCommandAvailable(COMMAND_SET_VIDEO_SURFACE)) {
+            if (updateVideoOutput && oldPlayer.isCommandAvailable(COMMAND_SET_VIDEO_SURFACE)) {
                 if (surfaceView instanceof TextureView) {
                     oldPlayer.clearVideoTextureView((TextureView) surfaceView);
                 } else if (surfaceView instanceof SurfaceView) {
@@ -539,7 +638,7 @@ public class PlayerView extends FrameLayout implements AdViewProvider {
         updateErrorMessage();
         updateForCurrentTrackSelections(/* isNewPlayer= */ true);
         if (player != null) {
-            if (player.isCommandAvailable(COMMAND_SET_VIDEO_SURFACE)) {
+            if (updateVideoOutput && player.isCommandAvailable(COMMAND_SET_VIDEO_SURFACE)) {
                 if (surfaceView instanceof TextureView) {
                     player.setVideoTextureView((TextureView) surfaceView);
                 } else if (surfaceView instanceof SurfaceView) {
@@ -625,6 +724,22 @@ public class PlayerView extends FrameLayout implements AdViewProvider {
         }
     }
 
+    /**
+     * Sets the {@link Bitmap.Config} used to decode artwork embedded in the media. {@link
+     * Bitmap.Config#RGB_565} halves the memory used by artwork, at the cost of color depth. The
+     * default is {@link Bitmap.Config#ARGB_8888}.
+     *
+     * <p>Artwork is decoded on a background thread, sampled down to the size of the artwork view.
+     *
+     * @param artworkBitmapConfig The {@link Bitmap.Config} used to decode artwork.
+     */
+    public void setArtworkBitmapConfig(Bitmap.Config artworkBitmapConfig) {
+        if (this.artworkBitmapConfig != artworkBitmapConfig) {
+            this.artworkBitmapConfig = artworkBitmapConfig;
+            updateForCurrentTrackSelections(/* isNewPlayer= */ false);
+        }
+    }
+
     /**
      * Returns whether the playback controls can be shown.
      */
@@ -1251,6 +1366,8 @@ public class PlayerView extends FrameLayout implements AdViewProvider {
     }
 
     private void updateForCurrentTrackSelections(boolean isNewPlayer) {
+        // Any artwork being decoded is for the previous track selections.
+        artworkLoader.cancel();
         @Nullable Player player = this.player;
         if (player == null || player.getCurrentTrackGroups().isEmpty()) {
             if (!keepContentOnPlayerReset) {
@@ -1276,10 +1393,11 @@ public class PlayerView extends FrameLayout implements AdViewProvider {
         closeShutter();
         // Display artwork if enabled and available, else hide it.
         if (useArtwork()) {
-            for (Metadata metadata : player.getCurrentStaticMetadata()) {
-                if (setArtworkFromMetadata(metadata)) {
-                    return;
-                }
+            @Nullable
+            byte[] pictureData = ArtworkLoader.getPictureData(player.getCurrentStaticMetadata());
+            if (pictureData != null) {
+                loadArtwork(pictureData);
+                return;
             }
             if (setDrawableArtwork(defaultArtwork)) {
                 return;
@@ -1290,33 +1408,19 @@ public class PlayerView extends FrameLayout implements AdViewProvider {
     }
 
     //  @RequiresNonNull("artworkView")
-    private boolean setArtworkFromMetadata(Metadata metadata) {
-        boolean isArtworkSet = false;
-        int currentPictureType = PICTURE_TYPE_NOT_SET;
-        for (int i = 0; i < metadata.length(); i++) {
-            Metadata.Entry metadataEntry = metadata.get(i);
-            int pictureType;
-            byte[] bitmapData;
-            if (metadataEntry instanceof ApicFrame) {
-                bitmapData = ((ApicFrame) metadataEntry).pictureData;
-                pictureType = ((ApicFrame) metadataEntry).pictureType;
-            } else if (metadataEntry instanceof PictureFrame) {
-                bitmapData = ((PictureFrame) metadataEntry).pictureData;
-                pictureType = ((PictureFrame) metadataEntry).pictureType;
-            } else {
-                continue;
-            }
-            // Prefer the first front cover picture. If there aren't any, prefer the first picture.
-            if (currentPictureType == PICTURE_TYPE_NOT_SET || pictureType == PICTURE_TYPE_FRONT_COVER) {
-                Bitmap bitmap = BitmapFactory.decodeByteArray(bitmapData, 0, bitmapData.length);
-                isArtworkSet = setDrawableArtwork(new BitmapDrawable(getResources(), bitmap));
-                currentPictureType = pictureType;
-                if (currentPictureType == PICTURE_TYPE_FRONT_COVER) {
-                    break;
-                }
-            }
-        }
-        return isArtworkSet;
+    private void loadArtwork(byte[] pictureData) {
+        artworkLoader.load(
+                pictureData,
+                artworkView,
+                artworkBitmapConfig,
+                bitmap -> {
+                    if (bitmap != null && setDrawableArtwork(new BitmapDrawable(getResources(), bitmap))) {
+                        return;
+                    }
+                    if (!setDrawableArtwork(defaultArtwork)) {
+                        hideArtwork();
+                    }
+                });
     }
 
     //  @RequiresNonNull("artworkView")
@@ -1572,4 +1676,46 @@ public class PlayerView extends FrameLayout implements AdViewProvider {
             updateContentDescription();
         }
     }
+
+    /**
+     * Forwards to the player's listener, except that the surface texture isn't released when the
+     * texture view is detached, so that it can be reattached to the texture view in its new parent.
+     */
+    private static final class RetainingSurfaceTextureListener
+            implements TextureView.SurfaceTextureListener {
+
+        @Nullable
+        private final TextureView.SurfaceTextureListener delegate;
+
+        public RetainingSurfaceTextureListener(
+                @Nullable TextureView.SurfaceTextureListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onSurfaceTextureAvailable(SurfaceTexture surfaceTexture, int width, int height) {
+            if (delegate != null) {
+                delegate.onSurfaceTextureAvailable(surfaceTexture, width, height);
+            }
+        }
+
+        @Override
+        public void onSurfaceTextureSizeChanged(SurfaceTexture surfaceTexture, int width, int height) {
+            if (delegate != null) {
+                delegate.onSurfaceTextureSizeChanged(surfaceTexture, width, height);
+            }
+        }
+
+        @Override
+        public boolean onSurfaceTextureDestroyed(SurfaceTexture surfaceTexture) {
+            return false;
+        }
+
+        @Override
+        public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {
+            if (delegate != null) {
+                delegate.onSurfaceTextureUpdated(surfaceTexture);
+            }
+        }
+    }
 }
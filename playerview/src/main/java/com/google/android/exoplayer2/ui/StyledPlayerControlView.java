@@ -31,11 +31,14 @@ import static com.google.android.exoplayer2.util.Assertions.checkNotNull;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Looper;
+import android.view.Choreographer;
 import android.view.KeyEvent;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.FrameLayout;
@@ -45,6 +48,7 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -53,20 +57,14 @@ import com.google.android.exoplayer2.ControlDispatcher;
 import com.google.android.exoplayer2.DefaultControlDispatcher;
 import com.google.android.exoplayer2.ExoPlayer;
 import com.google.android.exoplayer2.ExoPlayerLibraryInfo;
-import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.PlaybackPreparer;
 import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.Player.Events;
 import com.google.android.exoplayer2.Player.State;
 import com.google.android.exoplayer2.Timeline;
-import com.google.android.exoplayer2.source.TrackGroup;
-import com.google.android.exoplayer2.source.TrackGroupArray;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
-import com.google.android.exoplayer2.trackselection.DefaultTrackSelector.ParametersBuilder;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector.SelectionOverride;
 import com.google.android.exoplayer2.trackselection.MappingTrackSelector.MappedTrackInfo;
-import com.google.android.exoplayer2.trackselection.TrackSelection;
-import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
 import com.google.android.exoplayer2.trackselection.TrackSelector;
 import com.google.android.exoplayer2.util.Assertions;
 import com.google.android.exoplayer2.util.RepeatModeUtil;
@@ -76,9 +74,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Formatter;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
 
 /**
  * A view for controlling {@link Player} instances.
@@ -338,6 +339,21 @@ public class StyledPlayerControlView extends FrameLayout {
     private static final int MAX_UPDATE_INTERVAL_MS = 1_000;
     private static final int SETTINGS_PLAYBACK_SPEED_POSITION = 0;
     private static final int SETTINGS_AUDIO_TRACK_SELECTION_POSITION = 1;
+    // View types of the settings adapters, which share the view pool of settingsView.
+    private static final int SETTINGS_VIEW_TYPE_SETTING = 0;
+    private static final int SETTINGS_VIEW_TYPE_SUB_SETTING = 1;
+    private static final int MAX_RECYCLED_SUB_SETTING_VIEWS = 12;
+    private static final int DIRTY_PLAY_PAUSE = 1;
+    private static final int DIRTY_NAVIGATION = 1 << 1;
+    private static final int DIRTY_REPEAT_MODE = 1 << 2;
+    private static final int DIRTY_SHUFFLE = 1 << 3;
+    private static final int DIRTY_TRACK_LISTS = 1 << 4;
+    private static final int DIRTY_PLAYBACK_SPEED = 1 << 5;
+    private static final int DIRTY_TIMELINE = 1 << 6;
+    private static final int DIRTY_PROGRESS = 1 << 7;
+    private static final int DIRTY_ALL = (1 << 8) - 1;
+    private static final int RENDERED_STATE_UNSET = -1;
+    private static final Pattern TRACK_NAME_PREFIX_PATTERN = Pattern.compile("(ItemList : )|(Item : )");
 
     static {
         ExoPlayerLibraryInfo.registerModule("goog.exo.ui");
@@ -380,6 +396,7 @@ public class StyledPlayerControlView extends FrameLayout {
     private final Timeline.Period period;
     private final Timeline.Window window;
     private final Runnable updateProgressAction;
+    private final Choreographer.FrameCallback flushUpdatesCallback;
     private final String repeatOffButtonContentDescription;
     private final String repeatOneButtonContentDescription;
     private final String repeatAllButtonContentDescription;
@@ -427,6 +444,22 @@ public class StyledPlayerControlView extends FrameLayout {
     private boolean showMultiWindowTimeBar;
     private boolean multiWindowTimeBar;
     private boolean scrubbing;
+    private int dirtyFlags;
+    private boolean flushScheduled;
+    private int renderedPlayPauseState;
+    private int renderedNavigationState;
+    @Nullable
+    private Timeline renderedTimeline;
+    private int renderedTimelineWindowIndex;
+    @Nullable
+    private String renderedDurationText;
+    @Nullable
+    private String renderedPositionText;
+    private long renderedPositionMs;
+    private long renderedBufferedPositionMs;
+    @Nullable
+    private TrackInventory renderedTrackInventory;
+    private boolean renderedShowSubtitleButton;
     private int showTimeoutMs;
     private int timeBarMinUpdateIntervalMs;
     private int repeatToggleModes;
@@ -442,10 +475,11 @@ public class StyledPlayerControlView extends FrameLayout {
     private final SettingsAdapter settingsAdapter;
     private final PlaybackSpeedAdapter playbackSpeedAdapter;
     private final PopupWindow settingsWindow;
-    private boolean needToHideBars;
+    private final Map<RecyclerView.Adapter<?>, SettingsContentSize> settingsContentSizes;
     private final int settingsWindowMargin;
     @Nullable
     private DefaultTrackSelector trackSelector;
+    private TrackInventory trackInventory;
     private final TrackSelectionAdapter textTrackSelectionAdapter;
     private final TrackSelectionAdapter audioTrackSelectionAdapter;
     private final TrackNameProvider trackNameProvider;
@@ -533,6 +567,8 @@ public class StyledPlayerControlView extends FrameLayout {
         extraPlayedAdGroups = new boolean[0];
         controlDispatcher = new DefaultControlDispatcher(fastForwardMs, rewindMs);
         updateProgressAction = this::updateProgress;
+        flushUpdatesCallback = frameTimeNanos -> flushUpdates();
+        resetRenderedState();
 
         initializeFullScreenButton(fullScreenButton, this::onFullScreenButtonClicked);
         initializeFullScreenButton(minimalFullScreenButton, this::onFullScreenButtonClicked);
@@ -566,6 +602,10 @@ public class StyledPlayerControlView extends FrameLayout {
         settingsView = new RecyclerView(context);
         settingsView.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
         settingsView.setBackgroundColor(ExoColors.INSTANCE.getBLACK_ALPHA_80());
+        RecyclerView.RecycledViewPool settingsViewPool = new RecyclerView.RecycledViewPool();
+        settingsViewPool.setMaxRecycledViews(
+                SETTINGS_VIEW_TYPE_SUB_SETTING, MAX_RECYCLED_SUB_SETTING_VIEWS);
+        settingsView.setRecycledViewPool(settingsViewPool);
         settingsView.setAdapter(settingsAdapter);
         settingsView.setLayoutManager(new LinearLayoutManager(getContext()));
         settingsWindow =
@@ -576,12 +616,17 @@ public class StyledPlayerControlView extends FrameLayout {
             settingsWindow.setBackgroundDrawable(new ColorDrawable(Color.TRANSPARENT));
         }
         settingsWindow.setOnDismissListener(componentListener);
-        needToHideBars = true;
 
         trackNameProvider = new DefaultTrackNameProvider(getResources());
         textTrackSelectionAdapter = new TextTrackSelectionAdapter();
         audioTrackSelectionAdapter = new AudioTrackSelectionAdapter();
         playbackSpeedAdapter = new PlaybackSpeedAdapter(speedOptions, speedOptionsInto100);
+        settingsContentSizes = new HashMap<>();
+        trackInventory = TrackInventory.EMPTY;
+        registerSettingsContentSize(settingsAdapter);
+        registerSettingsContentSize(playbackSpeedAdapter);
+        registerSettingsContentSize(textTrackSelectionAdapter);
+        registerSettingsContentSize(audioTrackSelectionAdapter);
 
         playButtonDrawable = DrawableUtilsKt.getIcon(context, Icons.exo_controls_play);
         pauseButtonDrawable = DrawableUtilsKt.getIcon(context, Icons.exo_controls_pause);
@@ -700,6 +745,8 @@ public class StyledPlayerControlView extends FrameLayout {
             this.player.removeListener(componentListener);
         }
         this.player = player;
+        // The new player may happen to return the same timeline or tracks, but must still be shown.
+        resetRenderedState();
         if (player != null) {
             player.addListener(componentListener);
         }
@@ -714,6 +761,16 @@ public class StyledPlayerControlView extends FrameLayout {
         updateAll();
     }
 
+    /**
+     * Returns a snapshot of the tracks of the player, or {@link TrackInventory#EMPTY} if there's no
+     * player, it doesn't use a {@link DefaultTrackSelector} or no tracks have been mapped yet. The
+     * snapshot is taken again only when the tracks or their selection have changed.
+     */
+    public TrackInventory getTrackInventory() {
+        trackInventory = TrackInventory.update(trackInventory, player, trackSelector);
+        return trackInventory;
+    }
+
     /**
      * Sets whether the time bar should show all windows, as opposed to just the current one. If the
      * timeline has a period with unknown duration or more than {@link
@@ -724,7 +781,7 @@ public class StyledPlayerControlView extends FrameLayout {
      */
     public void setShowMultiWindowTimeBar(boolean showMultiWindowTimeBar) {
         this.showMultiWindowTimeBar = showMultiWindowTimeBar;
-        updateTimeline();
+        invalidateTimeline();
     }
 
     /**
@@ -748,7 +805,7 @@ public class StyledPlayerControlView extends FrameLayout {
             this.extraAdGroupTimesMs = extraAdGroupTimesMs;
             this.extraPlayedAdGroups = extraPlayedAdGroups;
         }
-        updateTimeline();
+        invalidateTimeline();
     }
 
     /**
@@ -801,6 +858,7 @@ public class StyledPlayerControlView extends FrameLayout {
     public void setControlDispatcher(ControlDispatcher controlDispatcher) {
         if (this.controlDispatcher != controlDispatcher) {
             this.controlDispatcher = controlDispatcher;
+            renderedNavigationState = RENDERED_STATE_UNSET;
             updateNavigation();
         }
     }
@@ -874,6 +932,46 @@ public class StyledPlayerControlView extends FrameLayout {
         }
     }
 
+    /**
+     * Sets a listener to be called when the Video Settings button is pressed, before it's clicked,
+     * and when the press ends.
+     *
+     * @param listener The listener to be called. A value of <code>null</code> removes any existing
+     *                 listener.
+     */
+    @SuppressLint("ClickableViewAccessibility")
+    public void setVideoSettingsButtonPressedListener(
+            @Nullable OnVideoSettingsButtonPressedListener listener) {
+        if (videoSettingsButton == null) {
+            return;
+        }
+        if (listener == null) {
+            videoSettingsButton.setOnTouchListener(null);
+            return;
+        }
+        videoSettingsButton.setOnTouchListener(
+                (view, event) -> {
+                    switch (event.getActionMasked()) {
+                        case MotionEvent.ACTION_DOWN:
+                            listener.onVideoSettingsButtonPressed();
+                            break;
+                        case MotionEvent.ACTION_UP:
+                            // The button posts the click, if any, when handling the event, so the
+                            // release is posted after it.
+                            boolean handled = view.onTouchEvent(event);
+                            view.post(listener::onVideoSettingsButtonReleased);
+                            return handled;
+                        case MotionEvent.ACTION_CANCEL:
+                            listener.onVideoSettingsButtonReleased();
+                            break;
+                        default:
+                            break;
+                    }
+                    // Let the button handle the click.
+                    return false;
+                });
+    }
+
     /**
      * Returns the playback controls timeout. The playback controls are automatically hidden after
      * this duration of time has elapsed without user input.
@@ -1102,22 +1200,85 @@ public class StyledPlayerControlView extends FrameLayout {
         }
     }
 
+    /**
+     * Forgets what the views were last updated with, so that the next update sets all of them.
+     */
+    private void resetRenderedState() {
+        renderedPlayPauseState = RENDERED_STATE_UNSET;
+        renderedNavigationState = RENDERED_STATE_UNSET;
+        renderedTimeline = null;
+        renderedTimelineWindowIndex = C.INDEX_UNSET;
+        renderedDurationText = null;
+        renderedPositionText = null;
+        renderedPositionMs = C.TIME_UNSET;
+        renderedBufferedPositionMs = C.TIME_UNSET;
+        renderedTrackInventory = null;
+    }
+
     /* package */ void updateAll() {
-        updatePlayPauseButton();
-        updateNavigation();
-        updateRepeatModeButton();
-        updateShuffleButton();
-        updateTrackLists();
-        updatePlaybackSpeedList();
-        updateTimeline();
+        markDirty(DIRTY_ALL);
+    }
+
+    /**
+     * Marks parts of the controller as needing an update. Updates are applied together at the start
+     * of the next frame, so a burst of player events updates each part once.
+     */
+    private void markDirty(int flags) {
+        dirtyFlags |= flags;
+        if (!flushScheduled && isAttachedToWindow) {
+            flushScheduled = true;
+            Choreographer.getInstance().postFrameCallback(flushUpdatesCallback);
+        }
+    }
+
+    private void flushUpdates() {
+        flushScheduled = false;
+        int dirtyFlags = this.dirtyFlags;
+        this.dirtyFlags = 0;
+        if ((dirtyFlags & DIRTY_PLAY_PAUSE) != 0) {
+            updatePlayPauseButton();
+        }
+        if ((dirtyFlags & DIRTY_NAVIGATION) != 0) {
+            updateNavigation();
+        }
+        if ((dirtyFlags & DIRTY_REPEAT_MODE) != 0) {
+            updateRepeatModeButton();
+        }
+        if ((dirtyFlags & DIRTY_SHUFFLE) != 0) {
+            updateShuffleButton();
+        }
+        if ((dirtyFlags & DIRTY_TRACK_LISTS) != 0) {
+            updateTrackLists();
+        }
+        if ((dirtyFlags & DIRTY_PLAYBACK_SPEED) != 0) {
+            updatePlaybackSpeedList();
+        }
+        // The timeline goes first, as the progress depends on the offset of the current window.
+        if ((dirtyFlags & DIRTY_TIMELINE) != 0) {
+            updateTimeline();
+        }
+        if ((dirtyFlags & DIRTY_PROGRESS) != 0) {
+            updateProgress();
+        }
+    }
+
+    private void invalidateTimeline() {
+        renderedTimeline = null;
+        markDirty(DIRTY_TIMELINE | DIRTY_PROGRESS);
     }
 
     private void updatePlayPauseButton() {
         if (!isVisible() || !isAttachedToWindow) {
             return;
         }
+        boolean showPauseButton = shouldShowPauseButton();
+        int playPauseState = showPauseButton ? 1 : 0;
+        if (playPauseState == renderedPlayPauseState) {
+            return;
+        }
+        renderedPlayPauseState = playPauseState;
         if (playPauseButton != null) {
-            if (shouldShowPauseButton()) {
+            if (showPauseButton) {
                 ((ImageView) playPauseButton).setImageDrawable(pauseButtonDrawable);
                 playPauseButton.setContentDescription("Pause");
             } else {
@@ -1156,6 +1317,17 @@ public class StyledPlayerControlView extends FrameLayout {
             }
         }
 
+        int navigationState =
+                (enableSeeking ? 1 : 0)
+                        | (enablePrevious ? 1 << 1 : 0)
+                        | (enableRewind ? 1 << 2 : 0)
+                        | (enableFastForward ? 1 << 3 : 0)
+                        | (enableNext ? 1 << 4 : 0);
+        if (navigationState == renderedNavigationState) {
+            return;
+        }
+        renderedNavigationState = navigationState;
+
         if (enableRewind) {
             updateRewindButton();
         }
@@ -1252,67 +1424,87 @@ public class StyledPlayerControlView extends FrameLayout {
     }
 
     private void updateTrackLists() {
-        initTrackSelectionAdapter();
+        TrackInventory trackInventory = getTrackInventory();
+        boolean showSubtitleButton = controlViewLayoutManager.getShowButton(subtitleButton);
+        if (trackInventory == renderedTrackInventory
+                && showSubtitleButton == renderedShowSubtitleButton) {
+            return;
+        }
+        renderedTrackInventory = trackInventory;
+        renderedShowSubtitleButton = showSubtitleButton;
+        initTrackSelectionAdapter(trackInventory);
         updateButton(textTrackSelectionAdapter.getItemCount() > 0, subtitleButton);
     }
 
-    private void initTrackSelectionAdapter() {
-        textTrackSelectionAdapter.clear();
-        audioTrackSelectionAdapter.clear();
-        if (player == null || trackSelector == null) {
-            return;
-        }
-        DefaultTrackSelector trackSelector = this.trackSelector;
-        @Nullable MappedTrackInfo mappedTrackInfo = trackSelector.getCurrentMappedTrackInfo();
+    private void initTrackSelectionAdapter(TrackInventory trackInventory) {
+        @Nullable MappedTrackInfo mappedTrackInfo = trackInventory.getMappedTrackInfo();
         if (mappedTrackInfo == null) {
+            textTrackSelectionAdapter.clear();
+            audioTrackSelectionAdapter.clear();
             return;
         }
         List<TrackInfo> textTracks = new ArrayList<>();
         List<TrackInfo> audioTracks = new ArrayList<>();
         List<Integer> textRendererIndices = new ArrayList<>();
         List<Integer> audioRendererIndices = new ArrayList<>();
+        boolean textHasSelectionOverride = false;
+        boolean audioHasSelectionOverride = false;
         for (int rendererIndex = 0;
-             rendererIndex < mappedTrackInfo.getRendererCount();
+             rendererIndex < trackInventory.getRendererCount();
              rendererIndex++) {
-            if (mappedTrackInfo.getRendererType(rendererIndex) == C.TRACK_TYPE_TEXT
+            if (trackInventory.getRendererType(rendererIndex) == C.TRACK_TYPE_TEXT
                     && controlViewLayoutManager.getShowButton(subtitleButton)) {
-                // Get TrackSelection at the corresponding renderer index.
-                gatherTrackInfosForAdapter(mappedTrackInfo, rendererIndex, textTracks);
+                textHasSelectionOverride |=
+                        gatherTrackInfosForAdapter(trackInventory, rendererIndex, textTracks);
                 textRendererIndices.add(rendererIndex);
-            } else if (mappedTrackInfo.getRendererType(rendererIndex) == C.TRACK_TYPE_AUDIO) {
-                gatherTrackInfosForAdapter(mappedTrackInfo, rendererIndex, audioTracks);
+            } else if (trackInventory.getRendererType(rendererIndex) == C.TRACK_TYPE_AUDIO) {
+                audioHasSelectionOverride |=
+                        gatherTrackInfosForAdapter(trackInventory, rendererIndex, audioTracks);
                 audioRendererIndices.add(rendererIndex);
             }
         }
-        textTrackSelectionAdapter.init(textRendererIndices, textTracks, mappedTrackInfo);
-        audioTrackSelectionAdapter.init(audioRendererIndices, audioTracks, mappedTrackInfo);
-    }
-
-    private void gatherTrackInfosForAdapter(
-            MappedTrackInfo mappedTrackInfo, int rendererIndex, List<TrackInfo> tracks) {
-        TrackGroupArray trackGroupArray = mappedTrackInfo.getTrackGroups(rendererIndex);
-
-        TrackSelectionArray trackSelections = checkNotNull(player).getCurrentTrackSelections();
-        @Nullable TrackSelection trackSelection = trackSelections.get(rendererIndex);
-
-        for (int groupIndex = 0; groupIndex < trackGroupArray.length; groupIndex++) {
-            TrackGroup trackGroup = trackGroupArray.get(groupIndex);
-            for (int trackIndex = 0; trackIndex < trackGroup.length; trackIndex++) {
-                Format format = trackGroup.getFormat(trackIndex);
-                if (mappedTrackInfo.getTrackSupport(rendererIndex, groupIndex, trackIndex)
-                        == C.FORMAT_HANDLED) {
-                    boolean trackIsSelected =
-                            trackSelection != null && trackSelection.indexOf(format) != C.INDEX_UNSET;
-                    tracks.add(
-                            new TrackInfo(
-                                    rendererIndex,
-                                    groupIndex,
-                                    trackIndex,
-                                    trackNameProvider.getTrackName(format),
-                                    trackIsSelected));
-                }
+        textTrackSelectionAdapter.init(
+                textRendererIndices,
+                Collections.unmodifiableList(textTracks),
+                mappedTrackInfo,
+                textHasSelectionOverride);
+        audioTrackSelectionAdapter.init(
+                audioRendererIndices,
+                Collections.unmodifiableList(audioTracks),
+                mappedTrackInfo,
+                audioHasSelectionOverride);
+    }
+
+    /**
+     * Adds the playable tracks of a renderer to {@code tracks}, resolving everything the adapters
+     * display for them so that binding a row doesn't need to query the track selector.
+     *
+     * @return Whether the renderer has a selection override.
+     */
+    private boolean gatherTrackInfosForAdapter(
+            TrackInventory trackInventory, int rendererIndex, List<TrackInfo> tracks) {
+        boolean hasSelectionOverride = trackInventory.hasSelectionOverride(rendererIndex);
+        List<TrackInventory.Track> rendererTracks = trackInventory.getTracks(rendererIndex);
+        for (int i = 0; i < rendererTracks.size(); i++) {
+            TrackInventory.Track track = rendererTracks.get(i);
+            if (!track.isSupported()) {
+                continue;
             }
-        }
+            // Remove `ItemList : ` and `Item : ` from trackName
+            String trackName =
+                    TRACK_NAME_PREFIX_PATTERN
+                            .matcher(trackNameProvider.getTrackName(track.format))
+                            .replaceAll("");
+            tracks.add(
+                    new TrackInfo(
+                            rendererIndex,
+                            track.groupIndex,
+                            track.trackIndex,
+                            trackName,
+                            track.selected,
+                            /* explicitlySelected= */ track.selected && hasSelectionOverride));
+        }
+        return hasSelectionOverride;
     }
 
     private void updateTimeline() {
@@ -1320,14 +1512,20 @@ public class StyledPlayerControlView extends FrameLayout {
         if (player == null) {
             return;
         }
-        multiWindowTimeBar =
-                showMultiWindowTimeBar && canShowMultiWindowTimeBar(player.getCurrentTimeline(), window);
+        // Timelines are immutable, so the ad markers and duration only change with the instance or the
+        // current window.
+        Timeline timeline = player.getCurrentTimeline();
+        int currentWindowIndex = player.getCurrentWindowIndex();
+        if (timeline == renderedTimeline && currentWindowIndex == renderedTimelineWindowIndex) {
+            return;
+        }
+        renderedTimeline = timeline;
+        renderedTimelineWindowIndex = currentWindowIndex;
+        multiWindowTimeBar = showMultiWindowTimeBar && canShowMultiWindowTimeBar(timeline, window);
         currentWindowOffset = 0;
         long durationUs = 0;
         int adGroupCount = 0;
-        Timeline timeline = player.getCurrentTimeline();
         if (!timeline.isEmpty()) {
-            int currentWindowIndex = player.getCurrentWindowIndex();
             int firstWindowIndex = multiWindowTimeBar ? 0 : currentWindowIndex;
             int lastWindowIndex = multiWindowTimeBar ? timeline.getWindowCount() - 1 : currentWindowIndex;
             for (int i = firstWindowIndex; i <= lastWindowIndex; i++) {
@@ -1369,7 +1567,11 @@ public class StyledPlayerControlView extends FrameLayout {
         }
         long durationMs = C.usToMs(durationUs);
         if (durationView != null) {
-            durationView.setText(Util.getStringForTime(formatBuilder, formatter, durationMs));
+            String durationText = Util.getStringForTime(formatBuilder, formatter, durationMs);
+            if (!durationText.equals(renderedDurationText)) {
+                durationView.setText(durationText);
+                renderedDurationText = durationText;
+            }
         }
         if (timeBar != null) {
             timeBar.setDuration(durationMs);
@@ -1383,7 +1585,6 @@ public class StyledPlayerControlView extends FrameLayout {
             System.arraycopy(extraPlayedAdGroups, 0, playedAdGroups, adGroupCount, extraAdGroupCount);
             timeBar.setAdGroupTimesMs(adGroupTimesMs, playedAdGroups, totalAdGroupCount);
         }
-        updateProgress();
     }
 
     private void updateProgress() {
@@ -1397,13 +1598,17 @@ public class StyledPlayerControlView extends FrameLayout {
             position = currentWindowOffset + player.getContentPosition();
             bufferedPosition = currentWindowOffset + player.getContentBufferedPosition();
         }
-        if (positionView != null && !scrubbing) {
-            positionView.setText(Util.getStringForTime(formatBuilder, formatter, position));
+        if (!scrubbing) {
+            updatePositionView(position);
         }
-        if (timeBar != null) {
+        if (timeBar != null
+                && (position != renderedPositionMs || bufferedPosition != renderedBufferedPositionMs)) {
             timeBar.setPosition(position);
             timeBar.setBufferedPosition(bufferedPosition);
         }
+        renderedPositionMs = position;
+        renderedBufferedPositionMs = bufferedPosition;
+        // The listener is called on every update, as it may rely on being called periodically.
         if (progressUpdateListener != null) {
             progressUpdateListener.onProgressUpdate(position, bufferedPosition);
         }
@@ -1432,6 +1637,18 @@ public class StyledPlayerControlView extends FrameLayout {
         }
     }
 
+    private void updatePositionView(long positionMs) {
+        if (positionView == null) {
+            return;
+        }
+        // The text only changes once per second, while the time bar is updated more often.
+        String positionText = Util.getStringForTime(formatBuilder, formatter, positionMs);
+        if (!positionText.equals(renderedPositionText)) {
+            positionView.setText(positionText);
+            renderedPositionText = positionText;
+        }
+    }
+
     private void updatePlaybackSpeedList() {
         if (player == null) {
             return;
@@ -1440,33 +1657,73 @@ public class StyledPlayerControlView extends FrameLayout {
         settingsAdapter.setSubTextAtPosition(SETTINGS_PLAYBACK_SPEED_POSITION, playbackSpeedAdapter.getSelectedText());
     }
 
+    private void registerSettingsContentSize(RecyclerView.Adapter<?> adapter) {
+        SettingsContentSize contentSize = new SettingsContentSize();
+        adapter.registerAdapterDataObserver(contentSize);
+        settingsContentSizes.put(adapter, contentSize);
+    }
+
     private void updateSettingsWindowSize() {
-        settingsView.measure(MeasureSpec.UNSPECIFIED, MeasureSpec.UNSPECIFIED);
+        int itemWidth;
+        int totalHeight;
+        @Nullable
+        SettingsContentSize contentSize = settingsContentSizes.get(settingsView.getAdapter());
+        if (contentSize != null && contentSize.isMeasured()) {
+            itemWidth = contentSize.width;
+            totalHeight = contentSize.height;
+        } else {
+            settingsView.measure(MeasureSpec.UNSPECIFIED, MeasureSpec.UNSPECIFIED);
+            itemWidth = settingsView.getMeasuredWidth();
+            totalHeight = settingsView.getMeasuredHeight();
+            if (contentSize != null) {
+                contentSize.setMeasured(itemWidth, totalHeight);
+            }
+        }
 
         int maxWidth = getWidth() - settingsWindowMargin * 2;
-        int itemWidth = settingsView.getMeasuredWidth();
         int width = Math.min(itemWidth, maxWidth);
         settingsWindow.setWidth(width);
 
         int maxHeight = getHeight() - settingsWindowMargin * 2;
-        int totalHeight = settingsView.getMeasuredHeight();
         int height = Math.min(maxHeight, totalHeight);
         settingsWindow.setHeight(height);
     }
 
     private void displaySettingsWindow(RecyclerView.Adapter<?> adapter) {
-        settingsView.setAdapter(adapter);
+        if (settingsView.getAdapter() != adapter) {
+            // Swapping keeps the shared view pool, so the rows of one submenu are reused by the next.
+            settingsView.swapAdapter(adapter, /* removeAndRecycleExistingViews= */ true);
+        }
 
         updateSettingsWindowSize();
 
-        needToHideBars = false;
-        settingsWindow.dismiss();
-        needToHideBars = true;
-
         int xoff = getWidth() - settingsWindow.getWidth() - settingsWindowMargin;
         int yoff = -settingsWindow.getHeight() - settingsWindowMargin;
 
-        settingsWindow.showAsDropDown(this, xoff, yoff);
+        if (settingsWindow.isShowing()) {
+            // Switching to a submenu resizes the shown window instead of dismissing and showing it again.
+            settingsWindow.update(this, xoff, yoff, settingsWindow.getWidth(), settingsWindow.getHeight());
+        } else {
+            settingsWindow.showAsDropDown(this, xoff, yoff);
+        }
+    }
+
+    private void displayTrackSelectionWindow(TrackSelectionAdapter adapter) {
+        // The rows must show the current overrides, which may have changed since the lists were last
+        // updated without the tracks changing.
+        updateTrackLists();
+        displaySettingsWindow(adapter);
+    }
+
+    /**
+     * Commits a track selection made in a track list. The track lists are updated even if the
+     * player doesn't report a tracks change, as the override can change while the selected tracks
+     * stay the same, for example when the track that "Auto" selected is picked explicitly.
+     */
+    private void commitTrackSelection(TrackSelectionTransaction transaction) {
+        if (transaction.commit()) {
+            markDirty(DIRTY_TRACK_LISTS);
+        }
     }
 
     private void setPlaybackSpeed(float speed) {
@@ -1550,7 +1807,7 @@ public class StyledPlayerControlView extends FrameLayout {
         if (position == SETTINGS_PLAYBACK_SPEED_POSITION) {
             displaySettingsWindow(playbackSpeedAdapter);
         } else if (position == SETTINGS_AUDIO_TRACK_SELECTION_POSITION) {
-            displaySettingsWindow(audioTrackSelectionAdapter);
+            displayTrackSelectionWindow(audioTrackSelectionAdapter);
         } else {
             settingsWindow.dismiss();
         }
@@ -1573,6 +1830,8 @@ public class StyledPlayerControlView extends FrameLayout {
         controlViewLayoutManager.onDetachedFromWindow();
         isAttachedToWindow = false;
         removeCallbacks(updateProgressAction);
+        Choreographer.getInstance().removeFrameCallback(flushUpdatesCallback);
+        flushScheduled = false;
         controlViewLayoutManager.removeHideCallbacks();
     }
 
@@ -1633,6 +1892,18 @@ public class StyledPlayerControlView extends FrameLayout {
         controlViewLayoutManager.onLayout(changed, left, top, right, bottom);
     }
 
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        if (trackNameProvider instanceof DefaultTrackNameProvider) {
+            ((DefaultTrackNameProvider) trackNameProvider).clearCache();
+        }
+        // Font scale and density changes affect the size of the settings rows.
+        for (SettingsContentSize contentSize : settingsContentSizes.values()) {
+            contentSize.invalidate();
+        }
+    }
+
     private void onLayoutChange(
             View v,
             int left,
@@ -1745,21 +2016,160 @@ public class StyledPlayerControlView extends FrameLayout {
         void onDismiss(boolean isFullScreen);
     }
 
-    private static final class TrackInfo {
+    /**
+     * Listener to be invoked when the Video Settings button is pressed and released. The time until
+     * the button is released can be used to prepare what the click shows, for example with {@link
+     * TrackSelectionDialogBuilder#prepare()}.
+     */
+    public interface OnVideoSettingsButtonPressedListener {
+        /**
+         * Called when the Video Settings button is pressed.
+         */
+        void onVideoSettingsButtonPressed();
+
+        /**
+         * Called when the press ends, after the click it caused, if any. Anything prepared in {@link
+         * #onVideoSettingsButtonPressed()} and not used by a click can be dropped.
+         */
+        void onVideoSettingsButtonReleased();
+    }
+
+    /* package */ static final class TrackInfo {
 
         public final int rendererIndex;
         public final int groupIndex;
         public final int trackIndex;
         public final String trackName;
         public final boolean selected;
+        public final boolean explicitlySelected;
 
         public TrackInfo(
-                int rendererIndex, int groupIndex, int trackIndex, String trackName, boolean selected) {
+                int rendererIndex,
+                int groupIndex,
+                int trackIndex,
+                String trackName,
+                boolean selected,
+                boolean explicitlySelected) {
             this.rendererIndex = rendererIndex;
             this.groupIndex = groupIndex;
             this.trackIndex = trackIndex;
             this.trackName = trackName;
             this.selected = selected;
+            this.explicitlySelected = explicitlySelected;
+        }
+
+        /**
+         * Returns the stable ID of the row showing the track. The ID 0 is left for the first row of
+         * the track selection adapters.
+         */
+        public long getId() {
+            return (((long) rendererIndex << 40) | ((long) groupIndex << 20) | trackIndex) + 1;
+        }
+
+        public boolean hasSameContentsAs(TrackInfo other) {
+            return selected == other.selected
+                    && explicitlySelected == other.explicitlySelected
+                    && trackName.equals(other.trackName);
+        }
+    }
+
+    /**
+     * The size of the rows of a settings adapter, measured without constraints. A version of the
+     * adapter contents is counted up whenever the adapter notifies a change, and the measured size is
+     * only valid for the version it was measured at.
+     */
+    private static final class SettingsContentSize extends RecyclerView.AdapterDataObserver {
+
+        public int width;
+        public int height;
+        private int contentVersion;
+        private int measuredContentVersion;
+
+        public SettingsContentSize() {
+            measuredContentVersion = C.INDEX_UNSET;
+        }
+
+        public boolean isMeasured() {
+            return measuredContentVersion == contentVersion;
+        }
+
+        public void setMeasured(int width, int height) {
+            this.width = width;
+            this.height = height;
+            measuredContentVersion = contentVersion;
+        }
+
+        public void invalidate() {
+            contentVersion++;
+        }
+
+        @Override
+        public void onChanged() {
+            invalidate();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            invalidate();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            invalidate();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            invalidate();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Diffs the rows of a {@link TrackSelectionAdapter}: a first row when there are tracks, followed
+     * by a row per track.
+     */
+    /* package */ static final class TrackInfoDiffCallback extends DiffUtil.Callback {
+
+        private final List<TrackInfo> oldTracks;
+        private final List<TrackInfo> newTracks;
+        private final boolean firstRowChanged;
+
+        public TrackInfoDiffCallback(
+                List<TrackInfo> oldTracks, List<TrackInfo> newTracks, boolean firstRowChanged) {
+            this.oldTracks = oldTracks;
+            this.newTracks = newTracks;
+            this.firstRowChanged = firstRowChanged;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldTracks.isEmpty() ? 0 : oldTracks.size() + 1;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newTracks.isEmpty() ? 0 : newTracks.size() + 1;
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            if (oldItemPosition == 0 || newItemPosition == 0) {
+                return oldItemPosition == newItemPosition;
+            }
+            return oldTracks.get(oldItemPosition - 1).getId() == newTracks.get(newItemPosition - 1).getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            if (oldItemPosition == 0) {
+                return !firstRowChanged;
+            }
+            return oldTracks.get(oldItemPosition - 1).hasSameContentsAs(newTracks.get(newItemPosition - 1));
         }
     }
 
@@ -1788,17 +2198,13 @@ public class StyledPlayerControlView extends FrameLayout {
         @Override
         public void onScrubStart(TimeBar timeBar, long position) {
             scrubbing = true;
-            if (positionView != null) {
-                positionView.setText(Util.getStringForTime(formatBuilder, formatter, position));
-            }
+            updatePositionView(position);
             controlViewLayoutManager.removeHideCallbacks();
         }
 
         @Override
         public void onScrubMove(TimeBar timeBar, long position) {
-            if (positionView != null) {
-                positionView.setText(Util.getStringForTime(formatBuilder, formatter, position));
-            }
+            updatePositionView(position);
         }
 
         @Override
@@ -1812,42 +2218,44 @@ public class StyledPlayerControlView extends FrameLayout {
 
         @Override
         public void onEvents(Player player, Events events) {
+            int flags = 0;
             if (events.containsAny(EVENT_PLAYBACK_STATE_CHANGED, EVENT_PLAY_WHEN_READY_CHANGED)) {
-                updatePlayPauseButton();
+                flags |= DIRTY_PLAY_PAUSE;
             }
             if (events.containsAny(
                     EVENT_PLAYBACK_STATE_CHANGED, EVENT_PLAY_WHEN_READY_CHANGED, EVENT_IS_PLAYING_CHANGED)) {
-                updateProgress();
+                flags |= DIRTY_PROGRESS;
             }
             if (events.contains(EVENT_REPEAT_MODE_CHANGED)) {
-                updateRepeatModeButton();
+                flags |= DIRTY_REPEAT_MODE;
             }
             if (events.contains(EVENT_SHUFFLE_MODE_ENABLED_CHANGED)) {
-                updateShuffleButton();
+                flags |= DIRTY_SHUFFLE;
             }
             if (events.containsAny(
                     EVENT_REPEAT_MODE_CHANGED,
                     EVENT_SHUFFLE_MODE_ENABLED_CHANGED,
                     EVENT_POSITION_DISCONTINUITY,
                     EVENT_TIMELINE_CHANGED)) {
-                updateNavigation();
+                flags |= DIRTY_NAVIGATION;
             }
             if (events.containsAny(EVENT_POSITION_DISCONTINUITY, EVENT_TIMELINE_CHANGED)) {
-                updateTimeline();
+                flags |= DIRTY_TIMELINE | DIRTY_PROGRESS;
             }
             if (events.contains(EVENT_PLAYBACK_PARAMETERS_CHANGED)) {
-                updatePlaybackSpeedList();
+                flags |= DIRTY_PLAYBACK_SPEED;
             }
             if (events.contains(EVENT_TRACKS_CHANGED)) {
-                updateTrackLists();
+                flags |= DIRTY_TRACK_LISTS;
+            }
+            if (flags != 0) {
+                markDirty(flags);
             }
         }
 
         @Override
         public void onDismiss() {
-            if (needToHideBars) {
-                controlViewLayoutManager.resetHideCallbacks();
-            }
+            controlViewLayoutManager.resetHideCallbacks();
             /// Should hide system UI again when popup window is dismissed if user is currently in fullscreen mode
             if (onSettingsWindowDismissListener != null) {
                 onSettingsWindowDismissListener.onDismiss(isFullScreen);
@@ -1886,10 +2294,10 @@ public class StyledPlayerControlView extends FrameLayout {
                 displaySettingsWindow(playbackSpeedAdapter);
             } else if (audioTrackButton == view) {
                 controlViewLayoutManager.removeHideCallbacks();
-                displaySettingsWindow(audioTrackSelectionAdapter);
+                displayTrackSelectionWindow(audioTrackSelectionAdapter);
             } else if (subtitleButton == view) {
                 controlViewLayoutManager.removeHideCallbacks();
-                displaySettingsWindow(textTrackSelectionAdapter);
+                displayTrackSelectionWindow(textTrackSelectionAdapter);
             }
         }
     }
@@ -1904,6 +2312,12 @@ public class StyledPlayerControlView extends FrameLayout {
             this.mainTexts = mainTexts;
             this.subTexts = new String[mainTexts.length];
             this.iconIds = iconIds;
+            setHasStableIds(true);
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            return SETTINGS_VIEW_TYPE_SETTING;
         }
 
         @NonNull
@@ -1931,7 +2345,11 @@ public class StyledPlayerControlView extends FrameLayout {
         }
 
         public void setSubTextAtPosition(int position, String subText) {
+            if (Util.areEqual(subTexts[position], subText)) {
+                return;
+            }
             this.subTexts[position] = subText;
+            notifyItemChanged(position);
         }
     }
 
@@ -1963,6 +2381,7 @@ public class StyledPlayerControlView extends FrameLayout {
         public PlaybackSpeedAdapter(String[] playbackSpeedTexts, int[] playbackSpeedsTime100) {
             this.playbackSpeedTexts = playbackSpeedTexts;
             this.playbackSpeedsTime100 = playbackSpeedsTime100;
+            setHasStableIds(true);
         }
 
         public void updateSelectedIndex(float playbackSpeed) {
@@ -1976,7 +2395,12 @@ public class StyledPlayerControlView extends FrameLayout {
                     closestMatchDifference = difference;
                 }
             }
-            selectedIndex = closestMatchIndex;
+            if (closestMatchIndex != selectedIndex) {
+                // Only the check marks of the previous and new speed change.
+                notifyItemChanged(selectedIndex);
+                selectedIndex = closestMatchIndex;
+                notifyItemChanged(selectedIndex);
+            }
         }
 
         public String getSelectedText() {
@@ -2006,6 +2430,16 @@ public class StyledPlayerControlView extends FrameLayout {
                     });
         }
 
+        @Override
+        public int getItemViewType(int position) {
+            return SETTINGS_VIEW_TYPE_SUB_SETTING;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
         @Override
         public int getItemCount() {
             return playbackSpeedTexts.length;
@@ -2017,50 +2451,35 @@ public class StyledPlayerControlView extends FrameLayout {
         public void init(
                 List<Integer> rendererIndices,
                 List<TrackInfo> trackInfo,
-                MappedTrackInfo mappedTrackInfo) {
-            boolean subtitleIsOn = false;
-            for (int i = 0; i < trackInfo.size(); i++) {
-                if (trackInfo.get(i).selected) {
-                    subtitleIsOn = true;
-                    break;
-                }
-            }
-
+                MappedTrackInfo mappedTrackInfo,
+                boolean hasSelectionOverride) {
+            setTracks(rendererIndices, trackInfo, mappedTrackInfo, hasSelectionOverride);
+            boolean subtitleIsOn = hasSelectedTrack;
             if (subtitleButton != null) {
                 subtitleButton.setImageDrawable(
                         subtitleIsOn ? subtitleOnButtonDrawable : subtitleOffButtonDrawable);
                 subtitleButton.setContentDescription(
                         subtitleIsOn ? subtitleOnContentDescription : subtitleOffContentDescription);
             }
-            this.rendererIndices = rendererIndices;
-            this.tracks = trackInfo;
-            this.mappedTrackInfo = mappedTrackInfo;
         }
 
         @Override
         public void onBindViewHolderAtZeroPosition(SubSettingViewHolder holder) {
             // CC options include "Off" at the first position, which disables text rendering.
             holder.textView.setText("None");
-            boolean isTrackSelectionOff = true;
-            for (int i = 0; i < tracks.size(); i++) {
-                if (tracks.get(i).selected) {
-                    isTrackSelectionOff = false;
-                    break;
-                }
-            }
-            holder.checkView.setVisibility(isTrackSelectionOff ? VISIBLE : INVISIBLE);
+            holder.checkView.setVisibility(hasSelectedTrack ? INVISIBLE : VISIBLE);
             holder.itemView.setOnClickListener(
                     v -> {
                         if (trackSelector != null) {
-                            ParametersBuilder parametersBuilder = trackSelector.getParameters().buildUpon();
+                            TrackSelectionTransaction transaction =
+                                    new TrackSelectionTransaction(trackSelector);
                             for (int i = 0; i < rendererIndices.size(); i++) {
                                 int rendererIndex = rendererIndices.get(i);
-                                parametersBuilder =
-                                        parametersBuilder
-                                                .clearSelectionOverrides(rendererIndex)
-                                                .setRendererDisabled(rendererIndex, true);
+                                transaction
+                                        .clearSelectionOverrides(rendererIndex)
+                                        .setRendererDisabled(rendererIndex, true);
                             }
-                            checkNotNull(trackSelector).setParameters(parametersBuilder);
+                            commitTrackSelection(transaction);
                             settingsWindow.dismiss();
                         }
                     });
@@ -2088,26 +2507,16 @@ public class StyledPlayerControlView extends FrameLayout {
             // Audio track selection option includes "Auto" at the top.
             holder.textView.setText("Auto");
             // hasSelectionOverride is true means there is an explicit track selection, not "Auto".
-            boolean hasSelectionOverride = false;
-            DefaultTrackSelector.Parameters parameters = checkNotNull(trackSelector).getParameters();
-            for (int i = 0; i < rendererIndices.size(); i++) {
-                int rendererIndex = rendererIndices.get(i);
-                TrackGroupArray trackGroups = checkNotNull(mappedTrackInfo).getTrackGroups(rendererIndex);
-                if (parameters.hasSelectionOverride(rendererIndex, trackGroups)) {
-                    hasSelectionOverride = true;
-                    break;
-                }
-            }
             holder.checkView.setVisibility(hasSelectionOverride ? INVISIBLE : VISIBLE);
             holder.itemView.setOnClickListener(
                     v -> {
                         if (trackSelector != null) {
-                            ParametersBuilder parametersBuilder = trackSelector.getParameters().buildUpon();
+                            TrackSelectionTransaction transaction =
+                                    new TrackSelectionTransaction(trackSelector);
                             for (int i = 0; i < rendererIndices.size(); i++) {
-                                int rendererIndex = rendererIndices.get(i);
-                                parametersBuilder.clearSelectionOverrides(rendererIndex);
+                                transaction.clearSelectionOverrides(rendererIndices.get(i));
                             }
-                            checkNotNull(trackSelector).setParameters(parametersBuilder);
+                            commitTrackSelection(transaction);
                         }
                         settingsAdapter.setSubTextAtPosition(
                                 SETTINGS_AUDIO_TRACK_SELECTION_POSITION,
@@ -2125,18 +2534,10 @@ public class StyledPlayerControlView extends FrameLayout {
         public void init(
                 List<Integer> rendererIndices,
                 List<TrackInfo> trackInfo,
-                MappedTrackInfo mappedTrackInfo) {
+                MappedTrackInfo mappedTrackInfo,
+                boolean hasSelectionOverride) {
+            setTracks(rendererIndices, trackInfo, mappedTrackInfo, hasSelectionOverride);
             // Update subtext in settings menu with current audio track selection.
-            boolean hasSelectionOverride = false;
-            for (int i = 0; i < rendererIndices.size(); i++) {
-                int rendererIndex = rendererIndices.get(i);
-                TrackGroupArray trackGroups = mappedTrackInfo.getTrackGroups(rendererIndex);
-                if (trackSelector != null
-                        && trackSelector.getParameters().hasSelectionOverride(rendererIndex, trackGroups)) {
-                    hasSelectionOverride = true;
-                    break;
-                }
-            }
             if (trackInfo.isEmpty()) {
                 settingsAdapter.setSubTextAtPosition(
                         SETTINGS_AUDIO_TRACK_SELECTION_POSITION,
@@ -2149,17 +2550,12 @@ public class StyledPlayerControlView extends FrameLayout {
                 for (int i = 0; i < trackInfo.size(); i++) {
                     TrackInfo track = trackInfo.get(i);
                     if (track.selected) {
-                        // Remove `ItemList : ` and `Item : ` from trackName
-                        String trackName = track.trackName.replaceAll("(ItemList : )|(Item : )", "");
                         settingsAdapter.setSubTextAtPosition(
-                                SETTINGS_AUDIO_TRACK_SELECTION_POSITION, trackName);
+                                SETTINGS_AUDIO_TRACK_SELECTION_POSITION, track.trackName);
                         break;
                     }
                 }
             }
-            this.rendererIndices = rendererIndices;
-            this.tracks = trackInfo;
-            this.mappedTrackInfo = mappedTrackInfo;
         }
     }
 
@@ -2169,16 +2565,57 @@ public class StyledPlayerControlView extends FrameLayout {
         protected List<TrackInfo> tracks;
         protected @Nullable
         MappedTrackInfo mappedTrackInfo;
+        // Whether any of the renderers has a selection override, meaning the selection isn't "Auto".
+        protected boolean hasSelectionOverride;
+        protected boolean hasSelectedTrack;
 
         public TrackSelectionAdapter() {
             this.rendererIndices = new ArrayList<>();
             this.tracks = new ArrayList<>();
             this.mappedTrackInfo = null;
+            setHasStableIds(true);
         }
 
+        /**
+         * Sets the tracks to display. {@code trackInfo} is a snapshot taken when the tracks changed,
+         * holding everything needed to bind its rows.
+         */
         public abstract void init(List<Integer> rendererIndices,
                                   List<TrackInfo> trackInfo,
-                                  MappedTrackInfo mappedTrackInfo);
+                                  MappedTrackInfo mappedTrackInfo,
+                                  boolean hasSelectionOverride);
+
+        /**
+         * Sets the tracks to display, and notifies the rows that changed.
+         */
+        protected final void setTracks(
+                List<Integer> rendererIndices,
+                List<TrackInfo> trackInfo,
+                @Nullable MappedTrackInfo mappedTrackInfo,
+                boolean hasSelectionOverride) {
+            List<TrackInfo> oldTracks = tracks;
+            boolean oldHasSelectionOverride = this.hasSelectionOverride;
+            boolean oldHasSelectedTrack = hasSelectedTrack;
+            this.rendererIndices = rendererIndices;
+            this.tracks = trackInfo;
+            this.mappedTrackInfo = mappedTrackInfo;
+            this.hasSelectionOverride = hasSelectionOverride;
+            hasSelectedTrack = false;
+            for (int i = 0; i < trackInfo.size(); i++) {
+                if (trackInfo.get(i).selected) {
+                    hasSelectedTrack = true;
+                    break;
+                }
+            }
+            // The first row shows whether there's an override or a selected track.
+            boolean firstRowChanged =
+                    oldHasSelectionOverride != hasSelectionOverride
+                            || oldHasSelectedTrack != hasSelectedTrack;
+            DiffUtil.calculateDiff(
+                            new TrackInfoDiffCallback(oldTracks, trackInfo, firstRowChanged),
+                            /* detectMoves= */ false)
+                    .dispatchUpdatesTo(this);
+        }
 
         @NonNull
         @Override
@@ -2200,38 +2637,31 @@ public class StyledPlayerControlView extends FrameLayout {
                 onBindViewHolderAtZeroPosition(holder);
             } else {
                 TrackInfo track = tracks.get(position - 1);
-                TrackGroupArray trackGroups = mappedTrackInfo.getTrackGroups(track.rendererIndex);
-                boolean explicitlySelected =
-                        checkNotNull(trackSelector)
-                                .getParameters()
-                                .hasSelectionOverride(track.rendererIndex, trackGroups)
-                                && track.selected;
-                // Remove `ItemList : ` and `Item : ` from trackName
-                String trackName = track.trackName.replaceAll("(ItemList : )|(Item : )", "");
+                String trackName = track.trackName;
                 holder.textView.setText(trackName);
-                holder.checkView.setVisibility(explicitlySelected ? VISIBLE : INVISIBLE);
+                holder.checkView.setVisibility(track.explicitlySelected ? VISIBLE : INVISIBLE);
                 holder.itemView.setOnClickListener(
                         v -> {
                             if (mappedTrackInfo != null && trackSelector != null) {
-                                ParametersBuilder parametersBuilder = trackSelector.getParameters().buildUpon();
+                                TrackSelectionTransaction transaction =
+                                        new TrackSelectionTransaction(trackSelector);
                                 for (int i = 0; i < rendererIndices.size(); i++) {
                                     int rendererIndex = rendererIndices.get(i);
                                     if (rendererIndex == track.rendererIndex) {
-                                        parametersBuilder =
-                                                parametersBuilder
-                                                        .setSelectionOverride(
-                                                                rendererIndex,
-                                                                checkNotNull(mappedTrackInfo).getTrackGroups(rendererIndex),
-                                                                new SelectionOverride(track.groupIndex, track.trackIndex))
-                                                        .setRendererDisabled(rendererIndex, false);
+                                        transaction.setSelectionOverride(
+                                                rendererIndex,
+                                                checkNotNull(mappedTrackInfo).getTrackGroups(rendererIndex),
+                                                new SelectionOverride(track.groupIndex, track.trackIndex));
                                     } else {
-                                        parametersBuilder =
-                                                parametersBuilder
-                                                        .clearSelectionOverrides(rendererIndex)
-                                                        .setRendererDisabled(rendererIndex, true);
+                                        transaction
+                                                .clearSelectionOverrides(rendererIndex)
+                                                .setRendererDisabled(rendererIndex, true);
                                     }
                                 }
-                                checkNotNull(trackSelector).setParameters(parametersBuilder);
+                                // Picking the track that's already explicitly selected leaves the parameters
+                                // as they are, so tracks aren't selected again. Picking the track that "Auto"
+                                // chose adds an override, which makes the track selector select again.
+                                commitTrackSelection(transaction);
                                 onTrackSelection(trackName);
                                 settingsWindow.dismiss();
                             }
@@ -2239,14 +2669,27 @@ public class StyledPlayerControlView extends FrameLayout {
             }
         }
 
+        @Override
+        public int getItemViewType(int position) {
+            return SETTINGS_VIEW_TYPE_SUB_SETTING;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position == 0 ? 0 : tracks.get(position - 1).getId();
+        }
+
         @Override
         public int getItemCount() {
             return tracks.isEmpty() ? 0 : tracks.size() + 1;
         }
 
         public void clear() {
-            tracks = Collections.emptyList();
-            mappedTrackInfo = null;
+            setTracks(
+                    Collections.emptyList(),
+                    Collections.emptyList(),
+                    /* mappedTrackInfo= */ null,
+                    /* hasSelectionOverride= */ false);
         }
     }
 }
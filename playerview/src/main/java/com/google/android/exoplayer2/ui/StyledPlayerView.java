@@ -22,9 +22,9 @@ import static com.google.android.exoplayer2.util.Assertions.checkNotNull;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Color;
 import android.graphics.Matrix;
+import android.graphics.Point;
 import android.graphics.RectF;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
@@ -47,23 +47,27 @@ import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.ControlDispatcher;
 import com.google.android.exoplayer2.DefaultControlDispatcher;
 import com.google.android.exoplayer2.ExoPlaybackException;
+import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.MediaMetadata;
 import com.google.android.exoplayer2.PlaybackPreparer;
 import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.Player.DiscontinuityReason;
 import com.google.android.exoplayer2.Timeline;
 import com.google.android.exoplayer2.Timeline.Period;
-import com.google.android.exoplayer2.metadata.Metadata;
-import com.google.android.exoplayer2.metadata.flac.PictureFrame;
-import com.google.android.exoplayer2.metadata.id3.ApicFrame;
 import com.google.android.exoplayer2.source.TrackGroupArray;
 import com.google.android.exoplayer2.text.Cue;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
 import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
 import com.google.android.exoplayer2.trackselection.TrackSelectionUtil;
+import com.google.android.exoplayer2.trackselection.TrackSelector;
 import com.google.android.exoplayer2.ui.AspectRatioFrameLayout.ResizeMode;
 import com.google.android.exoplayer2.util.Assertions;
 import com.google.android.exoplayer2.util.ErrorMessageProvider;
 import com.google.android.exoplayer2.util.RepeatModeUtil;
 import com.google.android.exoplayer2.video.VideoDecoderGLSurfaceView;
+import com.google.android.exoplayer2.video.VideoSize;
 import com.google.android.exoplayer2.video.spherical.SphericalGLSurfaceView;
 import com.google.common.collect.ImmutableList;
 
@@ -72,6 +76,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * A high level view for {@link Player} media playbacks. It displays video, subtitles and album art
@@ -279,17 +284,30 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
     private static final int SURFACE_TYPE_TEXTURE_VIEW = 2;
     private static final int SURFACE_TYPE_SPHERICAL_GL_SURFACE_VIEW = 3;
     private static final int SURFACE_TYPE_VIDEO_DECODER_GL_SURFACE_VIEW = 4;
-    private static final int PICTURE_TYPE_FRONT_COVER = 3;
     // LINT.ThenChange(../../../../../../res/values/attrs.xml)
-    private static final int PICTURE_TYPE_NOT_SET = -1;
     private final ComponentListener componentListener;
+    private final ArtworkLoader artworkLoader;
+    private final List<Future<?>> artworkPrefetches;
+    private final Timeline.Window window;
+    private final FrameSnapshotter frameSnapshotter;
     @Nullable
     private final AspectRatioFrameLayout contentFrame;
     @Nullable
+    private final VideoSizeLimiter videoSizeLimiter;
+    @Nullable
+    private final VideoFrameRateLimiter videoFrameRateLimiter;
+    @Nullable
+    private final HiddenVideoSuspender hiddenVideoSuspender;
+    @Nullable
+    private final SurfaceTypePolicy surfaceTypePolicy;
+    @Nullable
     private final View shutterView;
     @Nullable
-    private final View surfaceView;
-    private final boolean surfaceViewIgnoresVideoAspectRatio;
+    private View surfaceView;
+    private boolean surfaceViewIgnoresVideoAspectRatio;
+    private int surfaceType;
+    @Nullable
+    private View retiredSurfaceView;
     @Nullable
     private final ImageView artworkView;
     @Nullable
@@ -306,12 +324,16 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
     private final FrameLayout overlayFrameLayout;
     @Nullable
     private Player player;
+    private TrackInventory trackInventory;
     private boolean useController;
     @Nullable
     private StyledPlayerControlView.VisibilityListener controllerVisibilityListener;
     private boolean useArtwork;
     @Nullable
     private Drawable defaultArtwork;
+    private Bitmap.Config artworkBitmapConfig;
+    private int artworkPrefetchWindowCount;
+    private int artworkPrefetchMaxSizeBytes;
     private int showBuffering;
     private boolean keepContentOnPlayerReset;
     @Nullable
@@ -341,11 +363,20 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
         super(context, null, 0);
 
         componentListener = new ComponentListener();
+        artworkLoader = new ArtworkLoader();
+        artworkPrefetches = new ArrayList<>();
+        window = new Timeline.Window();
+        frameSnapshotter = new FrameSnapshotter();
+        trackInventory = TrackInventory.EMPTY;
         setBackgroundColor(Color.BLACK);
         setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
 
         if (isInEditMode()) {
             contentFrame = null;
+            videoSizeLimiter = null;
+            videoFrameRateLimiter = null;
+            hiddenVideoSuspender = null;
+            surfaceTypePolicy = null;
             shutterView = null;
             surfaceView = null;
             surfaceViewIgnoresVideoAspectRatio = false;
@@ -382,44 +413,27 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
         overlayFrameLayout = findViewById(R.id.exo_overlay);
         controller = findViewById(R.id.exo_controller);
 
+        videoSizeLimiter = contentFrame != null ? new VideoSizeLimiter(contentFrame) : null;
+        videoFrameRateLimiter =
+                new VideoFrameRateLimiter(new VideoFrameRateLimiter.ViewDisplaySource(this));
+        hiddenVideoSuspender = new HiddenVideoSuspender(this, this::onVideoSuspendedChanged);
+        // The policy watches the content frame, so it also sees the scale of resize gestures. Without a
+        // content frame there's no surface to choose a type for.
+        surfaceTypePolicy =
+                contentFrame != null
+                        ? new SurfaceTypePolicy(contentFrame, this::setSurfaceTypeInternal)
+                        : null;
+
         this.useArtwork = useArtwork;
+        this.artworkBitmapConfig = Bitmap.Config.ARGB_8888;
         this.showBuffering = showBuffering;
 
         setResizeModeRaw(contentFrame, resizeMode);
         setDescendantFocusability(FOCUS_AFTER_DESCENDANTS);
 
         // Create a surface view and insert it into the content frame, if there is one.
-        boolean surfaceViewIgnoresVideoAspectRatio = false;
-        if (surfaceType != SURFACE_TYPE_NONE) {
-            ViewGroup.LayoutParams params =
-                    new ViewGroup.LayoutParams(
-                            ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
-            switch (surfaceType) {
-                case SURFACE_TYPE_TEXTURE_VIEW:
-                    surfaceView = new TextureView(context);
-                    break;
-                case SURFACE_TYPE_SPHERICAL_GL_SURFACE_VIEW:
-                    surfaceView = new SphericalGLSurfaceView(context);
-                    surfaceViewIgnoresVideoAspectRatio = true;
-                    break;
-                case SURFACE_TYPE_VIDEO_DECODER_GL_SURFACE_VIEW:
-                    surfaceView = new VideoDecoderGLSurfaceView(context);
-                    break;
-                default:
-                    surfaceView = new SurfaceView(context);
-                    break;
-            }
-            surfaceView.setLayoutParams(params);
-            // We don't want surfaceView to be clickable separately to the StyledPlayerView itself, but we
-            // do want to register as an OnClickListener so that surfaceView implementations can propagate
-            // click events up to the StyledPlayerView by calling their own performClick method.
-            surfaceView.setOnClickListener(componentListener);
-            surfaceView.setClickable(false);
-            contentFrame.addView(surfaceView, 0);
-        } else {
-            surfaceView = null;
-        }
-        this.surfaceViewIgnoresVideoAspectRatio = surfaceViewIgnoresVideoAspectRatio;
+        this.surfaceType = surfaceType;
+        createSurfaceView();
 
         this.controllerShowTimeoutMs = controllerShowTimeoutMs;
         this.controllerHideOnTouch = controllerHideOnTouch;
@@ -457,6 +471,141 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
         }
     }
 
+    private void createSurfaceView() {
+        surfaceViewIgnoresVideoAspectRatio = false;
+        if (surfaceType == SURFACE_TYPE_NONE || contentFrame == null) {
+            surfaceView = null;
+            return;
+        }
+        Context context = getContext();
+        ViewGroup.LayoutParams params =
+                new ViewGroup.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+        View surfaceView;
+        switch (surfaceType) {
+            case SURFACE_TYPE_TEXTURE_VIEW:
+                surfaceView = new TextureView(context);
+                break;
+            case SURFACE_TYPE_SPHERICAL_GL_SURFACE_VIEW:
+                surfaceView = new SphericalGLSurfaceView(context);
+                surfaceViewIgnoresVideoAspectRatio = true;
+                break;
+            case SURFACE_TYPE_VIDEO_DECODER_GL_SURFACE_VIEW:
+                surfaceView = new VideoDecoderGLSurfaceView(context);
+                break;
+            default:
+                surfaceView = new SurfaceView(context);
+                break;
+        }
+        surfaceView.setLayoutParams(params);
+        // We don't want surfaceView to be clickable separately to the StyledPlayerView itself, but we
+        // do want to register as an OnClickListener so that surfaceView implementations can propagate
+        // click events up to the StyledPlayerView by calling their own performClick method.
+        surfaceView.setOnClickListener(componentListener);
+        surfaceView.setClickable(false);
+        contentFrame.addView(surfaceView, 0);
+        this.surfaceView = surfaceView;
+    }
+
+    private void setSurfaceTypeInternal(int surfaceType) {
+        @Nullable AspectRatioFrameLayout contentFrame = this.contentFrame;
+        // Custom layouts without a content frame have no surface view, so there's nothing to change.
+        if (contentFrame == null || this.surfaceType == surfaceType) {
+            return;
+        }
+        this.surfaceType = surfaceType;
+        @Nullable Player player = this.player;
+        @Nullable View oldSurfaceView = surfaceView;
+        if (oldSurfaceView != null) {
+            if (player != null) {
+                clearVideoSurface(player);
+            }
+            if (textureViewRotation != 0) {
+                oldSurfaceView.removeOnLayoutChangeListener(componentListener);
+                textureViewRotation = 0;
+            }
+            removeRetiredSurfaceView();
+            if (player != null
+                    && TrackSelectionUtil.hasTrackOfType(
+                    player.getCurrentTrackSelections(), C.TRACK_TYPE_VIDEO)) {
+                // Keep showing the last frame above the new surface until video is rendered onto it.
+                retiredSurfaceView = oldSurfaceView;
+            } else {
+                contentFrame.removeView(oldSurfaceView);
+            }
+        }
+        createSurfaceView();
+        if (player != null) {
+            if (getDefaultTrackSelector(player) != null || !isVideoSuspended()) {
+                setVideoSurface(player);
+            }
+            VideoSize videoSize = player.getVideoSize();
+            componentListener.onVideoSizeChanged(
+                    videoSize.width,
+                    videoSize.height,
+                    videoSize.unappliedRotationDegrees,
+                    videoSize.pixelWidthHeightRatio);
+        }
+    }
+
+    private void removeRetiredSurfaceView() {
+        if (retiredSurfaceView != null && contentFrame != null) {
+            contentFrame.removeView(retiredSurfaceView);
+        }
+        retiredSurfaceView = null;
+    }
+
+    private void setVideoSurface(Player player) {
+        if (!player.isCommandAvailable(COMMAND_SET_VIDEO_SURFACE)) {
+            return;
+        }
+        if (surfaceView instanceof TextureView) {
+            player.setVideoTextureView((TextureView) surfaceView);
+        } else if (surfaceView instanceof SurfaceView) {
+            player.setVideoSurfaceView((SurfaceView) surfaceView);
+        }
+    }
+
+    private void clearVideoSurface(Player player) {
+        if (surfaceView instanceof TextureView) {
+            player.clearVideoTextureView((TextureView) surfaceView);
+        } else if (surfaceView instanceof SurfaceView) {
+            player.clearVideoSurfaceView((SurfaceView) surfaceView);
+        }
+    }
+
+    private boolean isVideoSuspended() {
+        return hiddenVideoSuspender != null && hiddenVideoSuspender.isSuspended();
+    }
+
+    private void onVideoSuspendedChanged(boolean suspended) {
+        @Nullable Player player = this.player;
+        if (player == null) {
+            return;
+        }
+        if (getDefaultTrackSelector(player) == null) {
+            // The video renderers couldn't be disabled, so at least stop rendering into the surface.
+            if (suspended) {
+                clearVideoSurface(player);
+            } else {
+                setVideoSurface(player);
+            }
+        }
+        // Show artwork while video is suspended.
+        updateForCurrentTrackSelections(/* isNewPlayer= */ false);
+    }
+
+    @Nullable
+    private static DefaultTrackSelector getDefaultTrackSelector(@Nullable Player player) {
+        if (player instanceof ExoPlayer) {
+            TrackSelector trackSelector = ((ExoPlayer) player).getTrackSelector();
+            if (trackSelector instanceof DefaultTrackSelector) {
+                return (DefaultTrackSelector) trackSelector;
+            }
+        }
+        return null;
+    }
+
     @SuppressWarnings("ResourceType")
     private static void setResizeModeRaw(AspectRatioFrameLayout aspectRatioFrame, int resizeMode) {
         aspectRatioFrame.setResizeMode(resizeMode);
@@ -518,29 +667,34 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
         @Nullable Player oldPlayer = this.player;
         if (oldPlayer != null) {
             oldPlayer.removeListener(componentListener);
-            if (surfaceView instanceof TextureView) {
-                oldPlayer.clearVideoTextureView((TextureView) surfaceView);
-            } else if (surfaceView instanceof SurfaceView) {
-                oldPlayer.clearVideoSurfaceView((SurfaceView) surfaceView);
-            }
+            clearVideoSurface(oldPlayer);
         }
+        removeRetiredSurfaceView();
         if (subtitleView != null) {
             subtitleView.setCues(null);
         }
         this.player = player;
+        @Nullable DefaultTrackSelector trackSelector = getDefaultTrackSelector(player);
+        if (videoSizeLimiter != null) {
+            videoSizeLimiter.setTrackSelector(trackSelector);
+        }
+        if (videoFrameRateLimiter != null) {
+            videoFrameRateLimiter.setTrackSelector(trackSelector);
+        }
+        if (hiddenVideoSuspender != null) {
+            hiddenVideoSuspender.setPlayer(
+                    trackSelector != null ? (ExoPlayer) player : null, trackSelector);
+        }
         if (useController()) {
             controller.setPlayer(player);
         }
         updateBuffering();
         updateErrorMessage();
         updateForCurrentTrackSelections(/* isNewPlayer= */ true);
+        prefetchUpcomingArtwork();
         if (player != null) {
-            if (player.isCommandAvailable(COMMAND_SET_VIDEO_SURFACE)) {
-                if (surfaceView instanceof TextureView) {
-                    player.setVideoTextureView((TextureView) surfaceView);
-                } else if (surfaceView instanceof SurfaceView) {
-                    player.setVideoSurfaceView((SurfaceView) surfaceView);
-                }
+            if (trackSelector != null || !isVideoSuspended()) {
+                setVideoSurface(player);
             }
             if (subtitleView != null && player.isCommandAvailable(COMMAND_GET_TEXT)) {
                 subtitleView.setCues(player.getCurrentCues());
@@ -561,6 +715,23 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
         }
     }
 
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        // Called from the super constructor, before the suspender is created.
+        if (hiddenVideoSuspender != null) {
+            hiddenVideoSuspender.update();
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (hiddenVideoSuspender != null) {
+            hiddenVideoSuspender.update();
+        }
+    }
+
     /**
      * Returns the {@link ResizeMode}.
      */
@@ -580,6 +751,40 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
         contentFrame.setResizeMode(resizeMode);
     }
 
+    /**
+     * Starts a resize gesture, such as a pinch between {@link
+     * AspectRatioFrameLayout#RESIZE_MODE_FIT} and {@link AspectRatioFrameLayout#RESIZE_MODE_ZOOM}.
+     * Until {@link #endResizeGesture()} is called, resize mode changes are animated by scaling the
+     * content frame instead of laying it out again. Best used with a {@link TextureView} surface.
+     *
+     * @see AspectRatioFrameLayout#beginResizeGesture()
+     */
+    public void beginResizeGesture() {
+        Assertions.checkStateNotNull(contentFrame);
+        contentFrame.beginResizeGesture();
+    }
+
+    /**
+     * Sets an additional scale to apply on top of the current resize mode during a resize gesture.
+     *
+     * @param scale The scale, relative to the size for the current resize mode.
+     * @see AspectRatioFrameLayout#setResizeGestureScale(float)
+     */
+    public void setResizeGestureScale(float scale) {
+        Assertions.checkStateNotNull(contentFrame);
+        contentFrame.setResizeGestureScale(scale);
+    }
+
+    /**
+     * Ends a resize gesture, laying out the content frame once for the final resize mode.
+     *
+     * @see AspectRatioFrameLayout#endResizeGesture()
+     */
+    public void endResizeGesture() {
+        Assertions.checkStateNotNull(contentFrame);
+        contentFrame.endResizeGesture();
+    }
+
     /**
      * Returns whether artwork is displayed if present in the media.
      */
@@ -621,6 +826,182 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
         }
     }
 
+    /**
+     * Sets the {@link Bitmap.Config} used to decode artwork embedded in the media. {@link
+     * Bitmap.Config#RGB_565} halves the memory used by artwork, at the cost of color depth. The
+     * default is {@link Bitmap.Config#ARGB_8888}.
+     *
+     * <p>Artwork is decoded on a background thread, sampled down to the size of the artwork view.
+     *
+     * @param artworkBitmapConfig The {@link Bitmap.Config} used to decode artwork.
+     */
+    public void setArtworkBitmapConfig(Bitmap.Config artworkBitmapConfig) {
+        if (this.artworkBitmapConfig != artworkBitmapConfig) {
+            this.artworkBitmapConfig = artworkBitmapConfig;
+            updateForCurrentTrackSelections(/* isNewPlayer= */ false);
+        }
+    }
+
+    /**
+     * Sets whether artwork of upcoming playlist items is decoded ahead of time, so that it can be
+     * shown as soon as an item starts playing. Disabled by default.
+     *
+     * <p>Artwork is prefetched from the {@link MediaMetadata#artworkData} of the {@link MediaItem}s
+     * of the next windows in the {@link Timeline}, into the {@link ArtworkCache}. Prefetching stops
+     * once the estimated size of the decoded bitmaps would exceed {@code maxSizeBytes}.
+     *
+     * @param windowCount  The number of upcoming windows to prefetch artwork for, or 0 to disable
+     *                     prefetching.
+     * @param maxSizeBytes The maximum estimated size of the prefetched bitmaps, in bytes.
+     */
+    public void setArtworkPrefetch(int windowCount, int maxSizeBytes) {
+        this.artworkPrefetchWindowCount = windowCount;
+        this.artworkPrefetchMaxSizeBytes = maxSizeBytes;
+        prefetchUpcomingArtwork();
+    }
+
+    /**
+     * Sets whether the video size selected by the player's {@link DefaultTrackSelector} is limited to
+     * the size of the content frame, so that small views don't play renditions meant for the full
+     * screen. Disabled by default.
+     *
+     * <p>When enabled, the viewport size and maximum video size of the track selector follow the size
+     * of the content frame. Changes are debounced and small resizes are ignored, to avoid switching
+     * renditions back and forth. Disabling clears the video size and viewport constraints of the
+     * track selector. Has no effect if the player isn't an {@link ExoPlayer} using a {@link
+     * DefaultTrackSelector}.
+     *
+     * @param limitVideoSizeToView Whether the video size is limited to the size of the view.
+     */
+    public void setLimitVideoSizeToView(boolean limitVideoSizeToView) {
+        if (videoSizeLimiter != null) {
+            videoSizeLimiter.setEnabled(limitVideoSizeToView);
+        }
+    }
+
+    /**
+     * Sets whether the video frame rate selected by the player's {@link DefaultTrackSelector} is
+     * capped to the refresh rate of the display showing this view, and to 30 fps while the device is
+     * in power save mode. Disabled by default.
+     *
+     * <p>When enabled, the cap follows refresh rate changes of the display, for example when a TV
+     * output switches to 50 Hz. Disabling clears the frame rate constraint of the track selector. Has
+     * no effect if the player isn't an {@link ExoPlayer} using a {@link DefaultTrackSelector}.
+     *
+     * @param limitVideoFrameRateToDisplay Whether the video frame rate is capped to the display.
+     */
+    public void setLimitVideoFrameRateToDisplay(boolean limitVideoFrameRateToDisplay) {
+        if (videoFrameRateLimiter != null) {
+            videoFrameRateLimiter.setEnabled(limitVideoFrameRateToDisplay);
+        }
+    }
+
+    /**
+     * Returns the video frame rate cap currently applied to the player's track selector, or {@link
+     * Format#NO_VALUE} if none is applied.
+     *
+     * @see #setLimitVideoFrameRateToDisplay(boolean)
+     */
+    public int getVideoFrameRateCap() {
+        return videoFrameRateLimiter != null
+                ? videoFrameRateLimiter.getFrameRateCap()
+                : Format.NO_VALUE;
+    }
+
+    /**
+     * Sets whether video is suspended while this view can't be seen, for example when it's scrolled
+     * off screen, its window is hidden, or {@link #onPause()} has been called while audio continues
+     * to play. Disabled by default.
+     *
+     * <p>While suspended, the video renderers of the player are disabled through its {@link
+     * DefaultTrackSelector}, so no video is decoded, and artwork is shown as for audio-only media. If
+     * the player doesn't have a {@link DefaultTrackSelector}, the video surface is detached instead.
+     * Video is resumed as soon as the view becomes visible again.
+     *
+     * @param suspendVideoWhenHidden Whether video is suspended while the view is hidden.
+     */
+    public void setSuspendVideoWhenHidden(boolean suspendVideoWhenHidden) {
+        if (hiddenVideoSuspender != null) {
+            hiddenVideoSuspender.setEnabled(suspendVideoWhenHidden);
+        }
+    }
+
+    /**
+     * Sets the type of view onto which video is rendered, replacing the current one. Disables {@link
+     * #setAutoSurfaceType(boolean) automatic surface type selection}, if it was enabled.
+     *
+     * <p>The current frame stays visible until video has been rendered onto the new view, as when
+     * {@link #setKeepContentOnPlayerReset(boolean) keeping content on player reset}.
+     *
+     * @param surfaceType One of {@link PlayerView#SURFACE_TYPE_NONE}, {@link
+     *                    PlayerView#SURFACE_TYPE_SURFACE_VIEW}, {@link
+     *                    PlayerView#SURFACE_TYPE_TEXTURE_VIEW}, {@link
+     *                    PlayerView#SURFACE_TYPE_SPHERICAL_GL_SURFACE_VIEW} or {@link
+     *                    PlayerView#SURFACE_TYPE_VIDEO_DECODER_GL_SURFACE_VIEW}.
+     */
+    public void setSurfaceType(int surfaceType) {
+        if (surfaceTypePolicy != null) {
+            surfaceTypePolicy.setEnabled(false);
+        }
+        setSurfaceTypeInternal(surfaceType);
+    }
+
+    /**
+     * Sets whether the type of view onto which video is rendered is chosen automatically. A {@link
+     * SurfaceView} is used while the video is displayed as is, and a {@link TextureView} while the
+     * content frame, this view or any of its ancestors is animated, scaled, rotated or translucent,
+     * which a {@link SurfaceView} can't follow. This includes {@link
+     * AspectRatioFrameLayout#beginResizeGesture() resize gestures}. Disabled by default.
+     *
+     * @param autoSurfaceType Whether the surface type is chosen automatically.
+     */
+    public void setAutoSurfaceType(boolean autoSurfaceType) {
+        if (surfaceTypePolicy != null) {
+            surfaceTypePolicy.setEnabled(autoSurfaceType);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the current video frame at the size of the video surface view.
+     *
+     * @param callback The callback to receive the snapshot on a background thread.
+     * @see #snapshot(int, int, SnapshotCallback)
+     */
+    public void snapshot(SnapshotCallback callback) {
+        int width = surfaceView != null ? surfaceView.getWidth() : 0;
+        int height = surfaceView != null ? surfaceView.getHeight() : 0;
+        snapshot(width, height, callback);
+    }
+
+    /**
+     * Takes a snapshot of the current video frame, scaled to the given size. Must be called on the
+     * main thread.
+     *
+     * <p>Frames are captured from a {@link TextureView} surface, or from a {@link SurfaceView}
+     * surface on API 24 and above. Bitmaps passed to {@link #releaseSnapshot(Bitmap)} are reused by
+     * later snapshots of the same size, so taking a series of thumbnails doesn't allocate a bitmap
+     * for each of them.
+     *
+     * @param width    The width of the snapshot.
+     * @param height   The height of the snapshot.
+     * @param callback The callback to receive the snapshot on a background thread. Receives null if
+     *                 there's no surface to capture from.
+     */
+    public void snapshot(int width, int height, SnapshotCallback callback) {
+        Assertions.checkState(Looper.myLooper() == Looper.getMainLooper());
+        frameSnapshotter.snapshot(surfaceView, width, height, callback);
+    }
+
+    /**
+     * Returns a bitmap received by a {@link SnapshotCallback} for reuse by later snapshots. May be
+     * called on any thread. The bitmap must not be used afterwards.
+     *
+     * @param bitmap The snapshot bitmap.
+     */
+    public void releaseSnapshot(Bitmap bitmap) {
+        frameSnapshotter.release(bitmap);
+    }
+
     /**
      * Returns whether the playback controls can be shown.
      */
@@ -1003,6 +1384,34 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
         controller.setVideoSettingsButtonListener(onClickListener);
     }
 
+    /**
+     * Sets a listener to be called when the Video Settings button is pressed, before it's clicked,
+     * and when the press ends.
+     *
+     * @param listener The listener to be called. A value of <code>null</code> removes any existing
+     *                 listener.
+     */
+    public void setVideoSettingsButtonPressedListener(
+            @Nullable StyledPlayerControlView.OnVideoSettingsButtonPressedListener listener) {
+        Assertions.checkStateNotNull(controller);
+        controller.setVideoSettingsButtonPressedListener(listener);
+    }
+
+    /**
+     * Returns a snapshot of the tracks of the player. The controller's snapshot is returned if there
+     * is a controller, so both see the same tracks.
+     *
+     * @see StyledPlayerControlView#getTrackInventory()
+     */
+    public TrackInventory getTrackInventory() {
+        if (controller != null) {
+            return controller.getTrackInventory();
+        }
+        trackInventory =
+                TrackInventory.update(trackInventory, player, getDefaultTrackSelector(player));
+        return trackInventory;
+    }
+
     /**
      * Sets which repeat toggle modes are enabled.
      *
@@ -1163,7 +1572,8 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
 
     /**
      * Should be called when the player is visible to the user, if the {@code surface_type} extends
-     * {@link GLSurfaceView}. It is the counterpart to {@link #onPause()}.
+     * {@link GLSurfaceView} or {@link #setSuspendVideoWhenHidden(boolean) video is suspended while
+     * hidden}. It is the counterpart to {@link #onPause()}.
      *
      * <p>This method should typically be called in {@code Activity.onStart()}, or {@code
      * Activity.onResume()} for API versions &lt;= 23.
@@ -1172,11 +1582,15 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
         if (surfaceView instanceof GLSurfaceView) {
             ((GLSurfaceView) surfaceView).onResume();
         }
+        if (hiddenVideoSuspender != null) {
+            hiddenVideoSuspender.setPaused(false);
+        }
     }
 
     /**
      * Should be called when the player is no longer visible to the user, if the {@code surface_type}
-     * extends {@link GLSurfaceView}. It is the counterpart to {@link #onResume()}.
+     * extends {@link GLSurfaceView} or {@link #setSuspendVideoWhenHidden(boolean) video is suspended
+     * while hidden}. It is the counterpart to {@link #onResume()}.
      *
      * <p>This method should typically be called in {@code Activity.onStop()}, or {@code
      * Activity.onPause()} for API versions &lt;= 23.
@@ -1185,6 +1599,9 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
         if (surfaceView instanceof GLSurfaceView) {
             ((GLSurfaceView) surfaceView).onPause();
         }
+        if (hiddenVideoSuspender != null) {
+            hiddenVideoSuspender.setPaused(true);
+        }
     }
 
     // AdsLoader.AdViewProvider implementation.
@@ -1301,6 +1718,8 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
     }
 
     private void updateForCurrentTrackSelections(boolean isNewPlayer) {
+        // Any artwork being decoded is for the previous track selections.
+        artworkLoader.cancel();
         @Nullable Player player = this.player;
         if (player == null || player.getCurrentTrackGroups().isEmpty()) {
             if (!keepContentOnPlayerReset) {
@@ -1315,7 +1734,9 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
             closeShutter();
         }
 
-        if (TrackSelectionUtil.hasTrackOfType(player.getCurrentTrackSelections(), C.TRACK_TYPE_VIDEO)) {
+        if (!isVideoSuspended()
+                && TrackSelectionUtil.hasTrackOfType(
+                player.getCurrentTrackSelections(), C.TRACK_TYPE_VIDEO)) {
             // Video enabled so artwork must be hidden. If the shutter is closed, it will be opened in
             // onRenderedFirstFrame().
             hideArtwork();
@@ -1326,10 +1747,15 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
         closeShutter();
         // Display artwork if enabled and available, else hide it.
         if (useArtwork()) {
-            for (Metadata metadata : player.getCurrentStaticMetadata()) {
-                if (setArtworkFromMetadata(metadata)) {
-                    return;
-                }
+            @Nullable
+            byte[] pictureData = ArtworkLoader.getPictureData(player.getCurrentStaticMetadata());
+            if (pictureData == null) {
+                // Fall back to artwork set on the media item, which may have been prefetched.
+                pictureData = getArtworkData(player.getCurrentTimeline(), player.getCurrentWindowIndex());
+            }
+            if (pictureData != null) {
+                loadArtwork(pictureData);
+                return;
             }
             if (setDrawableArtwork(defaultArtwork)) {
                 return;
@@ -1339,34 +1765,66 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
         hideArtwork();
     }
 
-    //  @RequiresNonNull("artworkView")
-    private boolean setArtworkFromMetadata(Metadata metadata) {
-        boolean isArtworkSet = false;
-        int currentPictureType = PICTURE_TYPE_NOT_SET;
-        for (int i = 0; i < metadata.length(); i++) {
-            Metadata.Entry metadataEntry = metadata.get(i);
-            int pictureType;
-            byte[] bitmapData;
-            if (metadataEntry instanceof ApicFrame) {
-                bitmapData = ((ApicFrame) metadataEntry).pictureData;
-                pictureType = ((ApicFrame) metadataEntry).pictureType;
-            } else if (metadataEntry instanceof PictureFrame) {
-                bitmapData = ((PictureFrame) metadataEntry).pictureData;
-                pictureType = ((PictureFrame) metadataEntry).pictureType;
-            } else {
+    @Nullable
+    private byte[] getArtworkData(Timeline timeline, int windowIndex) {
+        if (windowIndex >= timeline.getWindowCount()) {
+            return null;
+        }
+        return timeline.getWindow(windowIndex, window).mediaItem.mediaMetadata.artworkData;
+    }
+
+    private void prefetchUpcomingArtwork() {
+        for (int i = 0; i < artworkPrefetches.size(); i++) {
+            artworkPrefetches.get(i).cancel(/* mayInterruptIfRunning= */ false);
+        }
+        artworkPrefetches.clear();
+        @Nullable Player player = this.player;
+        if (player == null || !useArtwork || artworkView == null || artworkPrefetchWindowCount <= 0) {
+            return;
+        }
+        Timeline timeline = player.getCurrentTimeline();
+        if (timeline.isEmpty()) {
+            return;
+        }
+        Point targetSize = ArtworkLoader.getTargetSize(artworkView);
+        int bytesPerPixel = artworkBitmapConfig == Bitmap.Config.RGB_565 ? 2 : 4;
+        long estimatedBitmapSizeBytes = (long) targetSize.x * targetSize.y * bytesPerPixel;
+        long prefetchedSizeBytes = 0;
+        int windowIndex = player.getCurrentWindowIndex();
+        for (int i = 0; i < artworkPrefetchWindowCount; i++) {
+            windowIndex =
+                    timeline.getNextWindowIndex(
+                            windowIndex, player.getRepeatMode(), player.getShuffleModeEnabled());
+            if (windowIndex == C.INDEX_UNSET) {
+                break;
+            }
+            @Nullable byte[] artworkData = getArtworkData(timeline, windowIndex);
+            if (artworkData == null) {
                 continue;
             }
-            // Prefer the first front cover picture. If there aren't any, prefer the first picture.
-            if (currentPictureType == PICTURE_TYPE_NOT_SET || pictureType == PICTURE_TYPE_FRONT_COVER) {
-                Bitmap bitmap = BitmapFactory.decodeByteArray(bitmapData, 0, bitmapData.length);
-                isArtworkSet = setDrawableArtwork(new BitmapDrawable(getResources(), bitmap));
-                currentPictureType = pictureType;
-                if (currentPictureType == PICTURE_TYPE_FRONT_COVER) {
-                    break;
-                }
+            if (prefetchedSizeBytes + estimatedBitmapSizeBytes > artworkPrefetchMaxSizeBytes) {
+                break;
             }
+            prefetchedSizeBytes += estimatedBitmapSizeBytes;
+            artworkPrefetches.add(
+                    ArtworkLoader.prefetch(artworkData, targetSize.x, targetSize.y, artworkBitmapConfig));
         }
-        return isArtworkSet;
+    }
+
+    //  @RequiresNonNull("artworkView")
+    private void loadArtwork(byte[] pictureData) {
+        artworkLoader.load(
+                pictureData,
+                artworkView,
+                artworkBitmapConfig,
+                bitmap -> {
+                    if (bitmap != null && setDrawableArtwork(new BitmapDrawable(getResources(), bitmap))) {
+                        return;
+                    }
+                    if (!setDrawableArtwork(defaultArtwork)) {
+                        hideArtwork();
+                    }
+                });
     }
 
     //  @RequiresNonNull("artworkView")
@@ -1473,6 +1931,22 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
     public @interface ShowBuffering {
     }
 
+    /**
+     * Receives snapshots of the current video frame.
+     */
+    public interface SnapshotCallback {
+
+        /**
+         * Called on a background thread when a snapshot has been taken.
+         *
+         * <p>Pass the bitmap to {@link #releaseSnapshot(Bitmap)} once it's no longer needed, so that
+         * it can be reused by later snapshots of the same size.
+         *
+         * @param bitmap The snapshot, or null if the frame couldn't be captured.
+         */
+        void onSnapshotTaken(@Nullable Bitmap bitmap);
+    }
+
     private final class ComponentListener
             implements Player.Listener,
             OnLayoutChangeListener,
@@ -1532,6 +2006,8 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
             if (shutterView != null) {
                 shutterView.setVisibility(INVISIBLE);
             }
+            // The new surface shows video, so the previous one no longer needs to be kept.
+            removeRetiredSurfaceView();
         }
 
         @Override
@@ -1560,6 +2036,23 @@ public class StyledPlayerView extends FrameLayout implements AdViewProvider {
             }
 
             updateForCurrentTrackSelections(/* isNewPlayer= */ false);
+            prefetchUpcomingArtwork();
+        }
+
+        @Override
+        public void onTimelineChanged(Timeline timeline, @Player.TimelineChangeReason int reason) {
+            prefetchUpcomingArtwork();
+        }
+
+        @Override
+        public void onRepeatModeChanged(@Player.RepeatMode int repeatMode) {
+            // The upcoming windows depend on the repeat and shuffle modes.
+            prefetchUpcomingArtwork();
+        }
+
+        @Override
+        public void onShuffleModeEnabledChanged(boolean shuffleModeEnabled) {
+            prefetchUpcomingArtwork();
         }
 
         // Player.EventListener implementation
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of {@link Bitmap}s into which {@link SubtitlePainter} rasterizes styled cues, bounded by a
+ * memory budget.
+ *
+ * <p>Bitmaps handed out by {@link #acquire(int, int)} count towards the budget until they're
+ * {@link #release(Bitmap, int) released}. Released bitmaps are kept for reuse while the budget
+ * allows. The pool is cleared when the system asks the process to trim memory, after which
+ * bitmaps acquired before the trim are considered stale and should be re-rasterized.
+ *
+ * <p>Bitmaps are dropped rather than recycled, since they may still be referenced by a display list
+ * that hasn't been rendered yet.
+ */
+/* package */ final class SubtitleBitmapPool implements ComponentCallbacks2 {
+
+    private final int maxSizeBytes;
+    private final List<Bitmap> freeBitmaps;
+
+    private int sizeBytes;
+    private int generation;
+
+    /**
+     * @param maxSizeBytes The maximum number of bytes of bitmaps held by the pool, including bitmaps
+     *                     that are currently acquired.
+     */
+    public SubtitleBitmapPool(int maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+        freeBitmaps = new ArrayList<>();
+    }
+
+    /**
+     * Returns the current generation of the pool. The generation changes whenever the pool is
+     * cleared, and bitmaps acquired in an earlier generation should be released and re-acquired.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns a transparent {@link Bitmap} of the given size, or null if one can't be provided
+     * within the memory budget.
+     */
+    @Nullable
+    public Bitmap acquire(int width, int height) {
+        int requiredBytes = width * height * 4;
+        if (width <= 0 || height <= 0 || requiredBytes > maxSizeBytes) {
+            return null;
+        }
+        @Nullable Bitmap reusableBitmap = null;
+        for (int i = 0; i < freeBitmaps.size(); i++) {
+            Bitmap bitmap = freeBitmaps.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                reusableBitmap = bitmap;
+                break;
+            } else if (reusableBitmap == null && bitmap.getAllocationByteCount() >= requiredBytes) {
+                reusableBitmap = bitmap;
+            }
+        }
+        if (reusableBitmap != null) {
+            freeBitmaps.remove(reusableBitmap);
+            if (reusableBitmap.getWidth() != width || reusableBitmap.getHeight() != height) {
+                reusableBitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+            }
+            reusableBitmap.eraseColor(0);
+            return reusableBitmap;
+        }
+        // Make room for a new bitmap by dropping free ones.
+        while (sizeBytes + requiredBytes > maxSizeBytes && !freeBitmaps.isEmpty()) {
+            Bitmap droppedBitmap = freeBitmaps.remove(freeBitmaps.size() - 1);
+            sizeBytes -= droppedBitmap.getAllocationByteCount();
+        }
+        if (sizeBytes + requiredBytes > maxSizeBytes) {
+            return null;
+        }
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        sizeBytes += bitmap.getAllocationByteCount();
+        return bitmap;
+    }
+
+    /**
+     * Returns a bitmap obtained from {@link #acquire(int, int)} to the pool.
+     *
+     * @param bitmap     The bitmap.
+     * @param generation The {@link #getGeneration() generation} in which the bitmap was acquired.
+     */
+    public void release(Bitmap bitmap, int generation) {
+        if (generation != this.generation) {
+            // The pool stopped accounting for this bitmap when it was cleared.
+            return;
+        }
+        freeBitmaps.add(bitmap);
+    }
+
+    /**
+     * Drops all bitmaps and starts a new generation.
+     */
+    public void clear() {
+        freeBitmaps.clear();
+        sizeBytes = 0;
+        generation++;
+    }
+
+    // ComponentCallbacks2 implementation.
+
+    @Override
+    public void onTrimMemory(int level) {
+        clear();
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // Do nothing.
+    }
+}
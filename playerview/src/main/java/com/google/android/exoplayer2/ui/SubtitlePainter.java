@@ -65,6 +65,7 @@ import com.google.android.exoplayer2.util.Util;
     private final TextPaint textPaint;
     private final Paint windowPaint;
     private final Paint bitmapPaint;
+    private final Rect bounds;
 
     // Previous input variables.
     @Nullable
@@ -98,12 +99,23 @@ import com.google.android.exoplayer2.util.Util;
     private int parentBottom;
 
     // Derived drawing variables.
+    @Nullable
     private StaticLayout textLayout;
+    @Nullable
     private StaticLayout edgeLayout;
     private int textLeft;
     private int textTop;
     private int textPaddingX;
+    @Nullable
     private Rect bitmapRect;
+    private boolean isTextCue;
+
+    // Rasterized text cue, if a bitmap pool is set.
+    @Nullable
+    private SubtitleBitmapPool bitmapPool;
+    @Nullable
+    private Bitmap renderedCue;
+    private int renderedCueGeneration;
 
     @SuppressWarnings("ResourceType")
     public SubtitlePainter(Context context) {
@@ -131,6 +143,8 @@ import com.google.android.exoplayer2.util.Util;
         bitmapPaint = new Paint();
         bitmapPaint.setAntiAlias(true);
         bitmapPaint.setFilterBitmap(true);
+
+        bounds = new Rect();
     }
 
     /**
@@ -177,12 +191,45 @@ import com.google.android.exoplayer2.util.Util;
             int cueBoxTop,
             int cueBoxRight,
             int cueBoxBottom) {
+        layout(
+                cue,
+                style,
+                defaultTextSizePx,
+                cueTextSizePx,
+                bottomPaddingFraction,
+                cueBoxLeft,
+                cueBoxTop,
+                cueBoxRight,
+                cueBoxBottom);
+        draw(canvas);
+    }
+
+    /**
+     * Lays out the provided {@link Cue} with the specified styling without drawing it.
+     *
+     * <p>The layout is cached, and a subsequent call to {@link #draw(Canvas)} will draw it. If the
+     * parameters are the same as those passed to the previous call then the cached layout is reused
+     * and {@code false} is returned.
+     *
+     * @return Whether the layout, and so the rendered output, may differ from the previous call.
+     * @see #draw(Cue, CaptionStyleCompat, float, float, float, Canvas, int, int, int, int)
+     */
+    public boolean layout(
+            Cue cue,
+            CaptionStyleCompat style,
+            float defaultTextSizePx,
+            float cueTextSizePx,
+            float bottomPaddingFraction,
+            int cueBoxLeft,
+            int cueBoxTop,
+            int cueBoxRight,
+            int cueBoxBottom) {
         boolean isTextCue = cue.bitmap == null;
         int windowColor = Color.BLACK;
         if (isTextCue) {
             if (TextUtils.isEmpty(cue.text)) {
                 // Nothing to draw.
-                return;
+                return clear();
             }
             windowColor = cue.windowColorSet ? cue.windowColor : style.windowColor;
         }
@@ -210,8 +257,7 @@ import com.google.android.exoplayer2.util.Util;
                 && this.parentRight == cueBoxRight
                 && this.parentBottom == cueBoxBottom) {
             // We can use the cached layout.
-            drawLayout(canvas, isTextCue);
-            return;
+            return false;
         }
 
         this.cueText = cue.text;
@@ -238,6 +284,7 @@ import com.google.android.exoplayer2.util.Util;
         this.parentRight = cueBoxRight;
         this.parentBottom = cueBoxBottom;
 
+        this.isTextCue = isTextCue;
         if (isTextCue) {
             Assertions.checkNotNull(cueText);
             setupTextLayout();
@@ -245,11 +292,91 @@ import com.google.android.exoplayer2.util.Util;
             Assertions.checkNotNull(cueBitmap);
             setupBitmapLayout();
         }
+        updateBounds();
+        releaseRenderedCue();
+        return true;
+    }
+
+    /**
+     * Draws the cue laid out by the last call to {@link #layout}, if any.
+     *
+     * @param canvas The canvas into which to draw.
+     */
+    public void draw(Canvas canvas) {
+        if (bounds.isEmpty()) {
+            return;
+        }
         drawLayout(canvas, isTextCue);
     }
 
+    /**
+     * Returns the area drawn by the cue laid out by the last call to {@link #layout}, in the
+     * coordinates of the enclosing cue box's parent. The returned rect is empty if nothing will be
+     * drawn, and must not be modified.
+     */
+    public Rect getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Discards the cached layout so that nothing is drawn until the next call to {@link #layout}.
+     *
+     * @return Whether anything was drawn with the previous layout.
+     */
+    public boolean clear() {
+        boolean hadContent = !bounds.isEmpty();
+        releaseRenderedCue();
+        cueText = null;
+        cueBitmap = null;
+        textLayout = null;
+        edgeLayout = null;
+        bitmapRect = null;
+        bounds.setEmpty();
+        return hadContent;
+    }
+
+    /**
+     * Sets a pool of bitmaps into which text cues are rasterized once, so that later draws of the
+     * same layout blit the bitmap instead of drawing the text and its edge again. Text cues are drawn
+     * directly if the pool can't provide a bitmap within its budget.
+     *
+     * @param bitmapPool The pool, or null to always draw text cues directly.
+     */
+    public void setBitmapPool(@Nullable SubtitleBitmapPool bitmapPool) {
+        if (this.bitmapPool == bitmapPool) {
+            return;
+        }
+        releaseRenderedCue();
+        this.bitmapPool = bitmapPool;
+    }
+
+    private void updateBounds() {
+        if (isTextCue) {
+            StaticLayout textLayout = this.textLayout;
+            if (textLayout == null || edgeLayout == null) {
+                bounds.setEmpty();
+                return;
+            }
+            bounds.set(
+                    textLeft - textPaddingX,
+                    textTop,
+                    textLeft + textLayout.getWidth() + textPaddingX,
+                    textTop + textLayout.getHeight());
+            // Leave room for strokes and shadow layers, which may be drawn outside the layout.
+            int edgeExtent = (int) Math.ceil(Math.max(outlineWidth, shadowRadius + shadowOffset));
+            bounds.inset(-edgeExtent, -edgeExtent);
+        } else if (bitmapRect != null) {
+            bounds.set(bitmapRect);
+        } else {
+            bounds.setEmpty();
+        }
+    }
+
     //  @RequiresNonNull("cueText")
     private void setupTextLayout() {
+        // Don't keep drawing a previous cue's layout if this one can't be laid out.
+        textLayout = null;
+        edgeLayout = null;
         SpannableStringBuilder cueText =
                 this.cueText instanceof SpannableStringBuilder
                         ? (SpannableStringBuilder) this.cueText
@@ -415,7 +542,9 @@ import com.google.android.exoplayer2.util.Util;
 
     private void drawLayout(Canvas canvas, boolean isTextCue) {
         if (isTextCue) {
-            drawTextLayout(canvas);
+            if (bitmapPool == null || !drawRenderedTextLayout(canvas, bitmapPool)) {
+                drawTextLayout(canvas);
+            }
         } else {
             Assertions.checkNotNull(bitmapRect);
             Assertions.checkNotNull(cueBitmap);
@@ -423,6 +552,40 @@ import com.google.android.exoplayer2.util.Util;
         }
     }
 
+    /**
+     * Draws the text layout by blitting a bitmap from {@code bitmapPool}, rasterizing it first if
+     * necessary.
+     *
+     * @return Whether the layout was drawn.
+     */
+    private boolean drawRenderedTextLayout(Canvas canvas, SubtitleBitmapPool bitmapPool) {
+        if (renderedCue != null && renderedCueGeneration != bitmapPool.getGeneration()) {
+            // The pool has been cleared since the cue was rasterized.
+            releaseRenderedCue();
+        }
+        @Nullable Bitmap renderedCue = this.renderedCue;
+        if (renderedCue == null) {
+            renderedCue = bitmapPool.acquire(bounds.width(), bounds.height());
+            if (renderedCue == null) {
+                return false;
+            }
+            Canvas renderedCueCanvas = new Canvas(renderedCue);
+            renderedCueCanvas.translate(-bounds.left, -bounds.top);
+            drawTextLayout(renderedCueCanvas);
+            this.renderedCue = renderedCue;
+            renderedCueGeneration = bitmapPool.getGeneration();
+        }
+        canvas.drawBitmap(renderedCue, bounds.left, bounds.top, bitmapPaint);
+        return true;
+    }
+
+    private void releaseRenderedCue() {
+        if (renderedCue != null) {
+            Assertions.checkNotNull(bitmapPool).release(renderedCue, renderedCueGeneration);
+            renderedCue = null;
+        }
+    }
+
     private void drawTextLayout(Canvas canvas) {
         StaticLayout textLayout = this.textLayout;
         StaticLayout edgeLayout = this.edgeLayout;
@@ -23,6 +23,7 @@ import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.util.AttributeSet;
 import android.util.TypedValue;
+import android.view.TextureView;
 import android.view.View;
 import android.view.accessibility.CaptioningManager;
 import android.webkit.WebView;
@@ -40,6 +41,7 @@ import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 
 /**
@@ -71,6 +73,14 @@ public final class SubtitleView extends FrameLayout implements TextOutput {
      * styling features beyond those supported by {@link #VIEW_TYPE_CANVAS} such as vertical text.
      */
     public static final int VIEW_TYPE_WEB = 2;
+    /**
+     * Indicates subtitles should be drawn into the surface of a {@link TextureView} from a dedicated
+     * render thread.
+     *
+     * <p>This supports the same styling features as {@link #VIEW_TYPE_CANVAS}, but cue layout and
+     * drawing don't run on the main thread. Requires a hardware accelerated window.
+     */
+    public static final int VIEW_TYPE_TEXTURE = 3;
     private List<Cue> cues;
     private CaptionStyleCompat style;
     @Cue.TextSizeType
@@ -79,10 +89,18 @@ public final class SubtitleView extends FrameLayout implements TextOutput {
     private float bottomPaddingFraction;
     private boolean applyEmbeddedStyles;
     private boolean applyEmbeddedFontSizes;
+    private int cueBitmapCacheSize;
+    @Nullable
+    private FrameTimingListener frameTimingListener;
     private @ViewType
     int viewType;
     private Output output;
     private View innerSubtitleView;
+    // Cues with the styling preferences applied, keyed by the identity of the original cue. Only
+    // holds entries for the current cues and is cleared when the styling preferences change.
+    private IdentityHashMap<Cue, Cue> strippedCues;
+    @Nullable
+    private List<Cue> cuesWithStylingPreferencesApplied;
 
     public SubtitleView(Context context) {
         this(context, null);
@@ -97,6 +115,7 @@ public final class SubtitleView extends FrameLayout implements TextOutput {
         bottomPaddingFraction = DEFAULT_BOTTOM_PADDING_FRACTION;
         applyEmbeddedStyles = true;
         applyEmbeddedFontSizes = true;
+        strippedCues = new IdentityHashMap<>();
 
         CanvasSubtitleOutput canvasSubtitleOutput = new CanvasSubtitleOutput(context);
         output = canvasSubtitleOutput;
@@ -116,7 +135,15 @@ public final class SubtitleView extends FrameLayout implements TextOutput {
      * @param cues The cues to display, or null to clear the cues.
      */
     public void setCues(@Nullable List<Cue> cues) {
-        this.cues = (cues != null ? cues : Collections.emptyList());
+        if (cues == null) {
+            cues = Collections.emptyList();
+        }
+        if (areSameCues(this.cues, cues)) {
+            // The output is already displaying these cues.
+            return;
+        }
+        this.cues = cues;
+        cuesWithStylingPreferencesApplied = null;
         updateOutput();
     }
 
@@ -134,11 +161,18 @@ public final class SubtitleView extends FrameLayout implements TextOutput {
         }
         switch (viewType) {
             case VIEW_TYPE_CANVAS:
-                setView(new CanvasSubtitleOutput(getContext()));
+                CanvasSubtitleOutput canvasSubtitleOutput = new CanvasSubtitleOutput(getContext());
+                canvasSubtitleOutput.setBitmapCacheSize(cueBitmapCacheSize);
+                setView(canvasSubtitleOutput);
                 break;
             case VIEW_TYPE_WEB:
                 setView(new WebViewSubtitleOutput(getContext()));
                 break;
+            case VIEW_TYPE_TEXTURE:
+                TextureSubtitleOutput textureSubtitleOutput = new TextureSubtitleOutput(getContext());
+                textureSubtitleOutput.setFrameTimingListener(frameTimingListener);
+                setView(textureSubtitleOutput);
+                break;
             default:
                 throw new IllegalArgumentException();
         }
@@ -153,6 +187,20 @@ public final class SubtitleView extends FrameLayout implements TextOutput {
         innerSubtitleView = view;
         output = view;
         addView(view);
+        updateOutput();
+    }
+
+    /**
+     * Sets a listener to be notified of the time taken to render each subtitle frame. Only applies
+     * to {@link #VIEW_TYPE_TEXTURE}.
+     *
+     * @param frameTimingListener The listener, or null to clear the listener.
+     */
+    public void setFrameTimingListener(@Nullable FrameTimingListener frameTimingListener) {
+        this.frameTimingListener = frameTimingListener;
+        if (innerSubtitleView instanceof TextureSubtitleOutput) {
+            ((TextureSubtitleOutput) innerSubtitleView).setFrameTimingListener(frameTimingListener);
+        }
     }
 
     /**
@@ -228,7 +276,10 @@ public final class SubtitleView extends FrameLayout implements TextOutput {
      * @param applyEmbeddedStyles Whether styling embedded within the cues should be applied.
      */
     public void setApplyEmbeddedStyles(boolean applyEmbeddedStyles) {
-        this.applyEmbeddedStyles = applyEmbeddedStyles;
+        if (this.applyEmbeddedStyles != applyEmbeddedStyles) {
+            this.applyEmbeddedStyles = applyEmbeddedStyles;
+            clearStrippedCues();
+        }
         updateOutput();
     }
 
@@ -239,10 +290,31 @@ public final class SubtitleView extends FrameLayout implements TextOutput {
      * @param applyEmbeddedFontSizes Whether font sizes embedded within the cues should be applied.
      */
     public void setApplyEmbeddedFontSizes(boolean applyEmbeddedFontSizes) {
-        this.applyEmbeddedFontSizes = applyEmbeddedFontSizes;
+        if (this.applyEmbeddedFontSizes != applyEmbeddedFontSizes) {
+            this.applyEmbeddedFontSizes = applyEmbeddedFontSizes;
+            clearStrippedCues();
+        }
         updateOutput();
     }
 
+    /**
+     * Sets the memory budget for caching rasterized text cues, or 0 to disable caching. Disabled by
+     * default.
+     *
+     * <p>When enabled, each styled text cue is drawn once into a pooled bitmap, which is blitted on
+     * later frames instead of drawing the text and its edge again. This mostly benefits {@link
+     * CaptionStyleCompat#EDGE_TYPE_OUTLINE} and the shadow based edge types, which are expensive to
+     * draw. Only applies to {@link #VIEW_TYPE_CANVAS}.
+     *
+     * @param maxSizeBytes The maximum size of the cached cues, in bytes.
+     */
+    public void setCueBitmapCacheSize(int maxSizeBytes) {
+        this.cueBitmapCacheSize = maxSizeBytes;
+        if (innerSubtitleView instanceof CanvasSubtitleOutput) {
+            ((CanvasSubtitleOutput) innerSubtitleView).setBitmapCacheSize(maxSizeBytes);
+        }
+    }
+
     /**
      * Styles the captions using {@link CaptioningManager#getUserStyle()} if {@link CaptioningManager}
      * is available and enabled.
@@ -321,16 +393,58 @@ public final class SubtitleView extends FrameLayout implements TextOutput {
      * <p>Otherwise if {@link #applyEmbeddedFontSizes} is false then only size-related styling spans
      * are removed from {@link Cue#text} and {@link Cue#textSize} and {@link Cue#textSizeType} are set
      * to {@link Cue#DIMEN_UNSET}
+     *
+     * <p>Stripped cues are memoized, so repeated calls for the same cues and preferences don't
+     * rebuild them.
      */
     private List<Cue> getCuesWithStylingPreferencesApplied() {
         if (applyEmbeddedStyles && applyEmbeddedFontSizes) {
             return cues;
         }
-        List<Cue> strippedCues = new ArrayList<>(cues.size());
+        if (cuesWithStylingPreferencesApplied != null) {
+            return cuesWithStylingPreferencesApplied;
+        }
+        IdentityHashMap<Cue, Cue> previousStrippedCues = strippedCues;
+        IdentityHashMap<Cue, Cue> newStrippedCues = new IdentityHashMap<>();
+        List<Cue> result = new ArrayList<>(cues.size());
         for (int i = 0; i < cues.size(); i++) {
-            strippedCues.add(removeEmbeddedStyling(cues.get(i)));
+            Cue cue = cues.get(i);
+            @Nullable Cue strippedCue = previousStrippedCues.get(cue);
+            if (strippedCue == null) {
+                strippedCue = removeEmbeddedStyling(cue);
+            }
+            newStrippedCues.put(cue, strippedCue);
+            result.add(strippedCue);
         }
-        return strippedCues;
+        strippedCues = newStrippedCues;
+        cuesWithStylingPreferencesApplied = Collections.unmodifiableList(result);
+        return cuesWithStylingPreferencesApplied;
+    }
+
+    private void clearStrippedCues() {
+        strippedCues.clear();
+        cuesWithStylingPreferencesApplied = null;
+    }
+
+    /**
+     * Returns whether two cue lists contain the same {@link Cue} instances in the same order.
+     *
+     * <p>Identity is used rather than {@link Cue#equals(Object)}, which compares text and bitmaps.
+     */
+    private static boolean areSameCues(List<Cue> first, List<Cue> second) {
+        if (first == second) {
+            return true;
+        }
+        int size = first.size();
+        if (size != second.size()) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (first.get(i) != second.get(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private Cue removeEmbeddedStyling(Cue cue) {
@@ -374,6 +488,20 @@ public final class SubtitleView extends FrameLayout implements TextOutput {
                 float bottomPaddingFraction);
     }
 
+    /**
+     * Listener for the render timing of subtitle frames.
+     */
+    public interface FrameTimingListener {
+
+        /**
+         * Called on the main thread after a subtitle frame has been rendered.
+         *
+         * @param renderTimeNs The time taken to lay out and draw the frame, in nanoseconds.
+         * @param cueCount     The number of cues in the frame.
+         */
+        void onSubtitleFrameRendered(long renderTimeNs, int cueCount);
+    }
+
     /**
      * The type of {@link View} to use to display subtitles.
      *
@@ -382,11 +510,12 @@ public final class SubtitleView extends FrameLayout implements TextOutput {
      * <ul>
      *   <li>{@link #VIEW_TYPE_CANVAS}
      *   <li>{@link #VIEW_TYPE_WEB}
+     *   <li>{@link #VIEW_TYPE_TEXTURE}
      * </ul>
      */
     @Documented
     @Retention(SOURCE)
-    @IntDef({VIEW_TYPE_CANVAS, VIEW_TYPE_WEB})
+    @IntDef({VIEW_TYPE_CANVAS, VIEW_TYPE_WEB, VIEW_TYPE_TEXTURE})
     public @interface ViewType {
     }
 
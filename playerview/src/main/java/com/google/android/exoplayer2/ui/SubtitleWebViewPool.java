@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.graphics.Color;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.AttributeSet;
+import android.util.Base64;
+import android.view.MotionEvent;
+import android.webkit.WebView;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.util.Assertions;
+import com.google.common.base.Charsets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A process-wide pool of pre-created {@link WebView}s used by {@link SubtitleView#VIEW_TYPE_WEB}.
+ *
+ * <p>Creating the first {@link WebView} in a process is expensive, so switching a {@link
+ * SubtitleView} to {@link SubtitleView#VIEW_TYPE_WEB} can cause a visible hitch. {@link
+ * #prewarm(Context)} creates and loads up to {@link #setMaxSize(int) maxSize} web views while the
+ * main thread is idle, which are then handed to subtitle views and taken back when they're
+ * destroyed. The pool is refilled whenever a web view is handed out.
+ *
+ * <p>Pooling is disabled by default, so that apps that only use other view types never load a
+ * {@link WebView}. Apps that use {@link SubtitleView#VIEW_TYPE_WEB} can enable it by setting a
+ * maximum size and calling {@link #prewarm(Context)} ahead of switching the view type.
+ *
+ * <p>All methods must be called on the main thread.
+ */
+public final class SubtitleWebViewPool {
+
+    /**
+     * The default maximum number of pooled web views.
+     */
+    public static final int DEFAULT_MAX_SIZE = 0;
+
+    private static final String EMPTY_TEMPLATE = "<html><head></head><body></body></html>";
+
+    @SuppressLint("StaticFieldLeak") // Pooled web views only reference the application context.
+    private static final List<WebView> pool = new ArrayList<>();
+    private static int maxSize = DEFAULT_MAX_SIZE;
+    @Nullable
+    private static Context applicationContext;
+    private static boolean idleHandlerAdded;
+
+    private SubtitleWebViewPool() {
+    }
+
+    /**
+     * Sets the maximum number of web views kept in the pool. Web views in excess of the new size are
+     * destroyed.
+     *
+     * @param maxSize The maximum number of pooled web views, or 0 to disable pooling.
+     */
+    public static void setMaxSize(int maxSize) {
+        checkMainThread();
+        SubtitleWebViewPool.maxSize = maxSize;
+        while (pool.size() > maxSize) {
+            pool.remove(pool.size() - 1).destroy();
+        }
+    }
+
+    /**
+     * Schedules the pool to be filled while the main thread is idle.
+     *
+     * @param context Any context. Only its application context is retained.
+     */
+    public static void prewarm(Context context) {
+        checkMainThread();
+        applicationContext = context.getApplicationContext();
+        if (idleHandlerAdded || pool.size() >= maxSize) {
+            return;
+        }
+        idleHandlerAdded = true;
+        Looper.myQueue().addIdleHandler(new PrewarmIdleHandler());
+    }
+
+    /**
+     * Returns a pooled web view if one is available, or creates a new one.
+     *
+     * @param context The context of the web view.
+     * @param attrs   The attributes of the web view. Pooled web views were created without
+     *                attributes, so a new web view is always created if they're set.
+     */
+    /* package */ static WebView acquire(Context context, @Nullable AttributeSet attrs) {
+        checkMainThread();
+        if (pool.isEmpty() || attrs != null) {
+            return createWebView(context, attrs);
+        }
+        WebView webView = pool.remove(pool.size() - 1);
+        ((MutableContextWrapper) webView.getContext()).setBaseContext(context);
+        // Replace the web view that was handed out, in time for the next acquire.
+        prewarm(context);
+        return webView;
+    }
+
+    /**
+     * Returns a web view obtained from {@link #acquire(Context, AttributeSet)} to the pool, or destroys it if the
+     * pool is full. The web view must already have been removed from its parent.
+     */
+    /* package */ static void release(WebView webView) {
+        checkMainThread();
+        if (pool.size() >= maxSize) {
+            webView.destroy();
+            return;
+        }
+        Context context = webView.getContext();
+        ((MutableContextWrapper) context).setBaseContext(context.getApplicationContext());
+        loadEmptyTemplate(webView);
+        pool.add(webView);
+    }
+
+    private static WebView createWebView(Context context, @Nullable AttributeSet attrs) {
+        WebView webView = new SubtitleWebView(new MutableContextWrapper(context), attrs);
+        webView.setBackgroundColor(Color.TRANSPARENT);
+        return webView;
+    }
+
+    private static void loadEmptyTemplate(WebView webView) {
+        webView.loadData(
+                Base64.encodeToString(EMPTY_TEMPLATE.getBytes(Charsets.UTF_8), Base64.NO_PADDING),
+                "text/html",
+                "base64");
+    }
+
+    private static void checkMainThread() {
+        Assertions.checkState(Looper.myLooper() == Looper.getMainLooper());
+    }
+
+    /**
+     * Creates one web view per idle pass, so that filling the pool doesn't cause a long stall.
+     */
+    private static final class PrewarmIdleHandler implements MessageQueue.IdleHandler {
+
+        @Override
+        public boolean queueIdle() {
+            if (applicationContext == null || pool.size() >= maxSize) {
+                idleHandlerAdded = false;
+                return false;
+            }
+            WebView webView = createWebView(applicationContext, /* attrs= */ null);
+            loadEmptyTemplate(webView);
+            pool.add(webView);
+            boolean keepFilling = pool.size() < maxSize;
+            idleHandlerAdded = keepFilling;
+            return keepFilling;
+        }
+    }
+
+    /**
+     * A {@link WebView} that lets touch events and clicks through to the views below it.
+     */
+    @SuppressLint("ViewConstructor")
+    private static final class SubtitleWebView extends WebView {
+
+        public SubtitleWebView(Context context, @Nullable AttributeSet attrs) {
+            super(context, attrs);
+        }
+
+        @Override
+        public boolean onTouchEvent(MotionEvent event) {
+            super.onTouchEvent(event);
+            // Return false so that touch events are allowed down into @id/exo_content_frame below.
+            return false;
+        }
+
+        @Override
+        public boolean performClick() {
+            super.performClick();
+            // Return false so that clicks are allowed down into @id/exo_content_frame below.
+            return false;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import android.os.Handler;
+import android.view.View;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
+
+import com.google.android.exoplayer2.util.Util;
+
+/**
+ * Chooses between {@link PlayerView#SURFACE_TYPE_SURFACE_VIEW} and {@link
+ * PlayerView#SURFACE_TYPE_TEXTURE_VIEW} for a view, depending on whether it's being animated or
+ * transformed.
+ *
+ * <p>A {@link android.view.SurfaceView} is cheaper to render into, but isn't composited with the
+ * rest of the window, so it can't follow scale, rotation and alpha changes. The view and its
+ * ancestors are checked before each draw. A texture view is requested as soon as any of them is
+ * animated or transformed, and a surface view once they have been left alone for {@link
+ * #SETTLE_DELAY_MS}.
+ */
+/* package */ final class SurfaceTypePolicy
+        implements ViewTreeObserver.OnPreDrawListener, View.OnAttachStateChangeListener {
+
+    /**
+     * Receives the surface type chosen by the policy.
+     */
+    public interface Listener {
+
+        /**
+         * Called when the policy chooses a different surface type.
+         *
+         * @param surfaceType {@link PlayerView#SURFACE_TYPE_SURFACE_VIEW} or {@link
+         *                    PlayerView#SURFACE_TYPE_TEXTURE_VIEW}.
+         */
+        void onSurfaceTypeChanged(int surfaceType);
+    }
+
+    /**
+     * The time for which the view must stay untransformed before a surface view is chosen, in
+     * milliseconds.
+     */
+    public static final long SETTLE_DELAY_MS = 500;
+
+    private final View view;
+    private final Listener listener;
+    private final Handler handler;
+    private final Runnable settleRunnable;
+
+    private boolean enabled;
+    private boolean settlePending;
+    private int surfaceType;
+
+    /**
+     * @param view     The view that displays the video.
+     * @param listener The listener to notify of the chosen surface type.
+     */
+    public SurfaceTypePolicy(View view, Listener listener) {
+        this.view = view;
+        this.listener = listener;
+        handler = Util.createHandlerForCurrentLooper();
+        settleRunnable = this::onSettled;
+        surfaceType = PlayerView.SURFACE_TYPE_SURFACE_VIEW;
+    }
+
+    /**
+     * Sets whether the policy is enabled. When enabled, the surface type is chosen immediately.
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled == enabled) {
+            return;
+        }
+        this.enabled = enabled;
+        if (enabled) {
+            view.addOnAttachStateChangeListener(this);
+            if (view.isAttachedToWindow()) {
+                view.getViewTreeObserver().addOnPreDrawListener(this);
+            }
+            surfaceType =
+                    isTransformed(view)
+                            ? PlayerView.SURFACE_TYPE_TEXTURE_VIEW
+                            : PlayerView.SURFACE_TYPE_SURFACE_VIEW;
+            listener.onSurfaceTypeChanged(surfaceType);
+        } else {
+            view.removeOnAttachStateChangeListener(this);
+            view.getViewTreeObserver().removeOnPreDrawListener(this);
+            handler.removeCallbacks(settleRunnable);
+            settlePending = false;
+        }
+    }
+
+    // ViewTreeObserver.OnPreDrawListener implementation.
+
+    @Override
+    public boolean onPreDraw() {
+        if (isTransformed(view)) {
+            handler.removeCallbacks(settleRunnable);
+            settlePending = false;
+            // Skip this frame if the surface changes, so the new surface is laid out before drawing.
+            return !setSurfaceType(PlayerView.SURFACE_TYPE_TEXTURE_VIEW);
+        } else if (surfaceType != PlayerView.SURFACE_TYPE_SURFACE_VIEW && !settlePending) {
+            settlePending = true;
+            handler.postDelayed(settleRunnable, SETTLE_DELAY_MS);
+        }
+        return true;
+    }
+
+    // View.OnAttachStateChangeListener implementation.
+
+    @Override
+    public void onViewAttachedToWindow(View view) {
+        view.getViewTreeObserver().addOnPreDrawListener(this);
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View view) {
+        view.getViewTreeObserver().removeOnPreDrawListener(this);
+        handler.removeCallbacks(settleRunnable);
+        settlePending = false;
+    }
+
+    private void onSettled() {
+        settlePending = false;
+        if (!isTransformed(view)) {
+            setSurfaceType(PlayerView.SURFACE_TYPE_SURFACE_VIEW);
+        }
+    }
+
+    private boolean setSurfaceType(int surfaceType) {
+        if (this.surfaceType == surfaceType) {
+            return false;
+        }
+        this.surfaceType = surfaceType;
+        listener.onSurfaceTypeChanged(surfaceType);
+        return true;
+    }
+
+    /**
+     * Returns whether {@code view} or any of its ancestors is animated or has a scale, rotation or
+     * alpha that a surface view can't follow.
+     */
+    private static boolean isTransformed(View view) {
+        View currentView = view;
+        while (true) {
+            if (currentView.getAnimation() != null
+                    || currentView.getAlpha() < 1f
+                    || currentView.getScaleX() != 1f
+                    || currentView.getScaleY() != 1f
+                    || currentView.getRotation() != 0f
+                    || currentView.getRotationX() != 0f
+                    || currentView.getRotationY() != 0f) {
+                return true;
+            }
+            ViewParent parent = currentView.getParent();
+            if (!(parent instanceof View)) {
+                return false;
+            }
+            currentView = (View) parent;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import static com.google.android.exoplayer2.ui.SubtitleView.DEFAULT_BOTTOM_PADDING_FRACTION;
+import static com.google.android.exoplayer2.ui.SubtitleView.DEFAULT_TEXT_SIZE_FRACTION;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.SurfaceTexture;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.text.SpannableStringBuilder;
+import android.view.Surface;
+import android.view.TextureView;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.text.Cue;
+import com.google.android.exoplayer2.util.Log;
+import com.google.android.exoplayer2.util.Util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link SubtitleView.Output} that draws cues with {@link SubtitlePainter} into the surface of a
+ * {@link TextureView}, from a dedicated render thread.
+ *
+ * <p>Cue layout and drawing never run on the main thread, so they don't compete with animations or
+ * input handling. Updates that arrive while a frame is being rendered are coalesced, so only the
+ * latest cues are drawn.
+ */
+/* package */ final class TextureSubtitleOutput extends TextureView
+        implements SubtitleView.Output, TextureView.SurfaceTextureListener {
+
+    private static final String TAG = "TextureSubtitleOutput";
+
+    private static final int MSG_RENDER = 0;
+    private static final int MSG_RELEASE = 1;
+
+    private final Handler mainHandler;
+
+    private List<Cue> cues;
+    @Cue.TextSizeType
+    private int textSizeType;
+    private float textSize;
+    private CaptionStyleCompat style;
+    private float bottomPaddingFraction;
+    private int surfaceWidth;
+    private int surfaceHeight;
+    @Nullable
+    private HandlerThread renderThread;
+    @Nullable
+    private Handler renderHandler;
+    @Nullable
+    private SubtitleView.FrameTimingListener frameTimingListener;
+
+    public TextureSubtitleOutput(Context context) {
+        super(context);
+        mainHandler = Util.createHandlerForCurrentLooper();
+        cues = Collections.emptyList();
+        textSizeType = Cue.TEXT_SIZE_TYPE_FRACTIONAL;
+        textSize = DEFAULT_TEXT_SIZE_FRACTION;
+        style = CaptionStyleCompat.DEFAULT;
+        bottomPaddingFraction = DEFAULT_BOTTOM_PADDING_FRACTION;
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+    }
+
+    /**
+     * Sets a listener to be notified on the main thread of the time taken to render each frame.
+     *
+     * @param frameTimingListener The listener, or null to clear the listener.
+     */
+    public void setFrameTimingListener(
+            @Nullable SubtitleView.FrameTimingListener frameTimingListener) {
+        this.frameTimingListener = frameTimingListener;
+    }
+
+    @Override
+    public void update(
+            List<Cue> cues,
+            CaptionStyleCompat style,
+            float textSize,
+            @Cue.TextSizeType int textSizeType,
+            float bottomPaddingFraction) {
+        this.cues = cues;
+        this.style = style;
+        this.textSize = textSize;
+        this.textSizeType = textSizeType;
+        this.bottomPaddingFraction = bottomPaddingFraction;
+        requestRender();
+    }
+
+    @Override
+    public void setPadding(int left, int top, int right, int bottom) {
+        super.setPadding(left, top, right, bottom);
+        requestRender();
+    }
+
+    @Override
+    public void setPaddingRelative(int start, int top, int end, int bottom) {
+        super.setPaddingRelative(start, top, end, bottom);
+        requestRender();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        if (changed) {
+            // Relative padding is only resolved against the layout direction during layout.
+            requestRender();
+        }
+    }
+
+    // SurfaceTextureListener implementation.
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surfaceTexture, int width, int height) {
+        surfaceWidth = width;
+        surfaceHeight = height;
+        HandlerThread renderThread = new HandlerThread("ExoPlayer:SubtitleRenderer");
+        renderThread.start();
+        this.renderThread = renderThread;
+        renderHandler =
+                new Handler(
+                        renderThread.getLooper(),
+                        new Renderer(getContext(), surfaceTexture, mainHandler, this::onFrameRendered));
+        requestRender();
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surfaceTexture, int width, int height) {
+        surfaceWidth = width;
+        surfaceHeight = height;
+        requestRender();
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surfaceTexture) {
+        if (renderHandler != null) {
+            renderHandler.removeMessages(MSG_RENDER);
+            // The render thread releases the SurfaceTexture once it has stopped drawing into it.
+            renderHandler.sendEmptyMessage(MSG_RELEASE);
+            renderHandler = null;
+        }
+        if (renderThread != null) {
+            renderThread.quitSafely();
+            renderThread = null;
+        }
+        return false;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {
+        // Do nothing.
+    }
+
+    private void requestRender() {
+        if (renderHandler == null) {
+            // Rendering starts when the surface becomes available.
+            return;
+        }
+        Frame frame =
+                new Frame(
+                        copyCues(cues),
+                        style,
+                        textSize,
+                        textSizeType,
+                        bottomPaddingFraction,
+                        surfaceWidth,
+                        surfaceHeight,
+                        getPaddingLeft(),
+                        getPaddingTop(),
+                        getPaddingRight(),
+                        getPaddingBottom());
+        renderHandler.removeMessages(MSG_RENDER);
+        renderHandler.obtainMessage(MSG_RENDER, frame).sendToTarget();
+    }
+
+    /**
+     * Returns copies of {@code cues} whose text the render thread can use on its own.
+     * {@link SubtitlePainter} adds spans to a cue's {@link SpannableStringBuilder} in place, which
+     * mustn't happen to cues the main thread still holds.
+     */
+    /* package */ static List<Cue> copyCues(List<Cue> cues) {
+        List<Cue> copies = new ArrayList<>(cues.size());
+        for (int i = 0; i < cues.size(); i++) {
+            Cue cue = cues.get(i);
+            copies.add(
+                    cue.text == null
+                            ? cue
+                            : cue.buildUpon().setText(new SpannableStringBuilder(cue.text)).build());
+        }
+        return copies;
+    }
+
+    private void onFrameRendered(long renderTimeNs, int cueCount) {
+        if (frameTimingListener != null) {
+            frameTimingListener.onSubtitleFrameRendered(renderTimeNs, cueCount);
+        }
+    }
+
+    /**
+     * Immutable snapshot of everything needed to render a frame, handed to the render thread.
+     */
+    private static final class Frame {
+
+        public final List<Cue> cues;
+        public final CaptionStyleCompat style;
+        public final float textSize;
+        @Cue.TextSizeType
+        public final int textSizeType;
+        public final float bottomPaddingFraction;
+        public final int width;
+        public final int height;
+        public final int paddingLeft;
+        public final int paddingTop;
+        public final int paddingRight;
+        public final int paddingBottom;
+
+        public Frame(
+                List<Cue> cues,
+                CaptionStyleCompat style,
+                float textSize,
+                @Cue.TextSizeType int textSizeType,
+                float bottomPaddingFraction,
+                int width,
+                int height,
+                int paddingLeft,
+                int paddingTop,
+                int paddingRight,
+                int paddingBottom) {
+            this.cues = cues;
+            this.style = style;
+            this.textSize = textSize;
+            this.textSizeType = textSizeType;
+            this.bottomPaddingFraction = bottomPaddingFraction;
+            this.width = width;
+            this.height = height;
+            this.paddingLeft = paddingLeft;
+            this.paddingTop = paddingTop;
+            this.paddingRight = paddingRight;
+            this.paddingBottom = paddingBottom;
+        }
+    }
+
+    /**
+     * Receives frame timings on the main thread.
+     */
+    private interface FrameCallback {
+
+        void onFrameRendered(long renderTimeNs, int cueCount);
+    }
+
+    /**
+     * Renders frames into the surface. All methods are called on the render thread.
+     */
+    private static final class Renderer implements Handler.Callback {
+
+        private final Context context;
+        private final SurfaceTexture surfaceTexture;
+        private final Surface surface;
+        private final Handler mainHandler;
+        private final FrameCallback frameCallback;
+        private final List<SubtitlePainter> painters;
+
+        public Renderer(
+                Context context,
+                SurfaceTexture surfaceTexture,
+                Handler mainHandler,
+                FrameCallback frameCallback) {
+            this.context = context;
+            this.surfaceTexture = surfaceTexture;
+            this.mainHandler = mainHandler;
+            this.frameCallback = frameCallback;
+            surface = new Surface(surfaceTexture);
+            painters = new ArrayList<>();
+        }
+
+        @Override
+        public boolean handleMessage(Message msg) {
+            switch (msg.what) {
+                case MSG_RENDER:
+                    render((Frame) msg.obj);
+                    return true;
+                case MSG_RELEASE:
+                    surface.release();
+                    surfaceTexture.release();
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private void render(Frame frame) {
+            long startTimeNs = System.nanoTime();
+            Canvas canvas;
+            try {
+                canvas = Util.SDK_INT >= 23 ? surface.lockHardwareCanvas() : surface.lockCanvas(null);
+            } catch (IllegalArgumentException | IllegalStateException
+                    | Surface.OutOfResourcesException e) {
+                Log.w(TAG, "Failed to lock subtitle surface", e);
+                return;
+            }
+            try {
+                canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+                drawCues(canvas, frame);
+            } finally {
+                surface.unlockCanvasAndPost(canvas);
+            }
+            long renderTimeNs = System.nanoTime() - startTimeNs;
+            int cueCount = frame.cues.size();
+            mainHandler.post(() -> frameCallback.onFrameRendered(renderTimeNs, cueCount));
+        }
+
+        private void drawCues(Canvas canvas, Frame frame) {
+            List<Cue> cues = frame.cues;
+            if (cues.isEmpty()) {
+                return;
+            }
+            int left = frame.paddingLeft;
+            int top = frame.paddingTop;
+            int right = frame.width - frame.paddingRight;
+            int bottom = frame.height - frame.paddingBottom;
+            if (bottom <= top || right <= left) {
+                // No space to draw subtitles.
+                return;
+            }
+            int viewHeightMinusPadding = bottom - top;
+
+            float defaultViewTextSizePx =
+                    SubtitleViewUtils.resolveTextSize(
+                            frame.textSizeType, frame.textSize, frame.height, viewHeightMinusPadding);
+            if (defaultViewTextSizePx <= 0) {
+                // Text has no height.
+                return;
+            }
+
+            while (painters.size() < cues.size()) {
+                painters.add(new SubtitlePainter(context));
+            }
+            int cueCount = cues.size();
+            for (int i = 0; i < cueCount; i++) {
+                Cue cue = cues.get(i);
+                if (cue.verticalType != Cue.TYPE_UNSET) {
+                    cue = CanvasSubtitleOutput.repositionVerticalCue(cue);
+                }
+                float cueTextSizePx =
+                        SubtitleViewUtils.resolveTextSize(
+                                cue.textSizeType, cue.textSize, frame.height, viewHeightMinusPadding);
+                painters.get(i).draw(
+                        cue,
+                        frame.style,
+                        defaultViewTextSizePx,
+                        cueTextSizePx,
+                        frame.bottomPaddingFraction,
+                        canvas,
+                        left,
+                        top,
+                        right,
+                        bottom);
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import android.util.SparseArray;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.RendererCapabilities.FormatSupport;
+import com.google.android.exoplayer2.source.TrackGroup;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.google.android.exoplayer2.trackselection.MappingTrackSelector.MappedTrackInfo;
+import com.google.android.exoplayer2.trackselection.TrackSelection;
+import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
+import com.google.android.exoplayer2.util.Util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable snapshot of the tracks mapped to the renderers of a player, and of their selection.
+ *
+ * <p>The {@link MappedTrackInfo} is walked once when the snapshot is created, so that UI components
+ * can look up renderers by track type and iterate over the tracks without walking it again. All
+ * tracks are kept in a single list, ordered by renderer, group and track index, and the tracks of a
+ * renderer are a view of a range of that list.
+ */
+public final class TrackInventory {
+
+    /**
+     * A track mapped to a renderer.
+     */
+    public static final class Track {
+
+        /**
+         * The index of the renderer the track is mapped to.
+         */
+        public final int rendererIndex;
+        /**
+         * The {@code C.TRACK_TYPE_*} constant of the renderer.
+         */
+        public final int rendererType;
+        /**
+         * The index of the track group in the track groups of the renderer.
+         */
+        public final int groupIndex;
+        /**
+         * The index of the track in its group.
+         */
+        public final int trackIndex;
+        /**
+         * The format of the track.
+         */
+        public final Format format;
+        /**
+         * The extent to which the renderer supports the track.
+         */
+        @FormatSupport
+        public final int support;
+        /**
+         * Whether the track is part of the current selection of the renderer.
+         */
+        public final boolean selected;
+
+        private Track(
+                int rendererIndex,
+                int rendererType,
+                int groupIndex,
+                int trackIndex,
+                Format format,
+                @FormatSupport int support,
+                boolean selected) {
+            this.rendererIndex = rendererIndex;
+            this.rendererType = rendererType;
+            this.groupIndex = groupIndex;
+            this.trackIndex = trackIndex;
+            this.format = format;
+            this.support = support;
+            this.selected = selected;
+        }
+
+        /**
+         * Returns whether the renderer can play the track.
+         */
+        public boolean isSupported() {
+            return support == C.FORMAT_HANDLED;
+        }
+    }
+
+    /**
+     * An inventory without renderers, for when no tracks are known.
+     */
+    public static final TrackInventory EMPTY =
+            new TrackInventory(
+                    /* mappedTrackInfo= */ null,
+                    /* parameters= */ null,
+                    /* trackSelections= */ null,
+                    /* rendererTypes= */ new int[0],
+                    /* rendererDisabled= */ new boolean[0],
+                    /* rendererHasSelectionOverride= */ new boolean[0],
+                    /* rendererTrackOffsets= */ new int[]{0},
+                    /* tracks= */ Collections.emptyList());
+
+    @Nullable
+    private final MappedTrackInfo mappedTrackInfo;
+    @Nullable
+    private final DefaultTrackSelector.Parameters parameters;
+    @Nullable
+    private final TrackSelectionArray trackSelections;
+    private final int[] rendererTypes;
+    private final boolean[] rendererDisabled;
+    private final boolean[] rendererHasSelectionOverride;
+    private final int[] rendererTrackOffsets;
+    private final List<Track> tracks;
+    private final SparseArray<List<Integer>> rendererIndicesByType;
+
+    /**
+     * Creates a snapshot of the tracks of a player.
+     *
+     * @param mappedTrackInfo The current {@link MappedTrackInfo} of the track selector.
+     * @param parameters      The current parameters of the track selector.
+     * @param trackSelections The current track selections of the player.
+     * @return The snapshot.
+     */
+    public static TrackInventory create(
+            MappedTrackInfo mappedTrackInfo,
+            DefaultTrackSelector.Parameters parameters,
+            TrackSelectionArray trackSelections) {
+        int rendererCount = mappedTrackInfo.getRendererCount();
+        int[] rendererTypes = new int[rendererCount];
+        boolean[] rendererDisabled = new boolean[rendererCount];
+        boolean[] rendererHasSelectionOverride = new boolean[rendererCount];
+        int[] rendererTrackOffsets = new int[rendererCount + 1];
+        List<Track> tracks = new ArrayList<>();
+        for (int rendererIndex = 0; rendererIndex < rendererCount; rendererIndex++) {
+            int rendererType = mappedTrackInfo.getRendererType(rendererIndex);
+            TrackGroupArray trackGroups = mappedTrackInfo.getTrackGroups(rendererIndex);
+            rendererTypes[rendererIndex] = rendererType;
+            rendererDisabled[rendererIndex] = parameters.getRendererDisabled(rendererIndex);
+            rendererHasSelectionOverride[rendererIndex] =
+                    parameters.hasSelectionOverride(rendererIndex, trackGroups);
+            rendererTrackOffsets[rendererIndex] = tracks.size();
+            @Nullable TrackSelection trackSelection = trackSelections.get(rendererIndex);
+            for (int groupIndex = 0; groupIndex < trackGroups.length; groupIndex++) {
+                TrackGroup trackGroup = trackGroups.get(groupIndex);
+                for (int trackIndex = 0; trackIndex < trackGroup.length; trackIndex++) {
+                    Format format = trackGroup.getFormat(trackIndex);
+                    boolean selected =
+                            trackSelection != null && trackSelection.indexOf(format) != C.INDEX_UNSET;
+                    tracks.add(
+                            new Track(
+                                    rendererIndex,
+                                    rendererType,
+                                    groupIndex,
+                                    trackIndex,
+                                    format,
+                                    mappedTrackInfo.getTrackSupport(rendererIndex, groupIndex, trackIndex),
+                                    selected));
+                }
+            }
+        }
+        rendererTrackOffsets[rendererCount] = tracks.size();
+        return new TrackInventory(
+                mappedTrackInfo,
+                parameters,
+                trackSelections,
+                rendererTypes,
+                rendererDisabled,
+                rendererHasSelectionOverride,
+                rendererTrackOffsets,
+                Collections.unmodifiableList(tracks));
+    }
+
+    /**
+     * Returns a snapshot of the current tracks of a player, or {@link #EMPTY} if there's no player,
+     * track selector or mapping yet.
+     *
+     * @param previous      The previous snapshot, which is returned if nothing has changed since it
+     *                      was taken.
+     * @param player        The player, or null.
+     * @param trackSelector The track selector of the player, or null.
+     * @return The snapshot.
+     */
+    /* package */ static TrackInventory update(
+            TrackInventory previous,
+            @Nullable Player player,
+            @Nullable DefaultTrackSelector trackSelector) {
+        @Nullable MappedTrackInfo mappedTrackInfo =
+                player != null && trackSelector != null ? trackSelector.getCurrentMappedTrackInfo() : null;
+        if (player == null || trackSelector == null || mappedTrackInfo == null) {
+            return EMPTY;
+        }
+        DefaultTrackSelector.Parameters parameters = trackSelector.getParameters();
+        TrackSelectionArray trackSelections = player.getCurrentTrackSelections();
+        if (previous.isSnapshotOf(mappedTrackInfo, parameters, trackSelections)) {
+            return previous;
+        }
+        return create(mappedTrackInfo, parameters, trackSelections);
+    }
+
+    private TrackInventory(
+            @Nullable MappedTrackInfo mappedTrackInfo,
+            @Nullable DefaultTrackSelector.Parameters parameters,
+            @Nullable TrackSelectionArray trackSelections,
+            int[] rendererTypes,
+            boolean[] rendererDisabled,
+            boolean[] rendererHasSelectionOverride,
+            int[] rendererTrackOffsets,
+            List<Track> tracks) {
+        this.mappedTrackInfo = mappedTrackInfo;
+        this.parameters = parameters;
+        this.trackSelections = trackSelections;
+        this.rendererTypes = rendererTypes;
+        this.rendererDisabled = rendererDisabled;
+        this.rendererHasSelectionOverride = rendererHasSelectionOverride;
+        this.rendererTrackOffsets = rendererTrackOffsets;
+        this.tracks = tracks;
+        rendererIndicesByType = new SparseArray<>();
+        for (int rendererIndex = 0; rendererIndex < rendererTypes.length; rendererIndex++) {
+            int rendererType = rendererTypes[rendererIndex];
+            @Nullable List<Integer> rendererIndices = rendererIndicesByType.get(rendererType);
+            if (rendererIndices == null) {
+                rendererIndices = new ArrayList<>();
+                rendererIndicesByType.put(rendererType, rendererIndices);
+            }
+            rendererIndices.add(rendererIndex);
+        }
+    }
+
+    /**
+     * Returns the {@link MappedTrackInfo} the snapshot was taken of, or null for {@link #EMPTY}.
+     */
+    @Nullable
+    public MappedTrackInfo getMappedTrackInfo() {
+        return mappedTrackInfo;
+    }
+
+    /**
+     * Returns the number of renderers.
+     */
+    public int getRendererCount() {
+        return rendererTypes.length;
+    }
+
+    /**
+     * Returns the {@code C.TRACK_TYPE_*} constant of a renderer.
+     */
+    public int getRendererType(int rendererIndex) {
+        return rendererTypes[rendererIndex];
+    }
+
+    /**
+     * Returns the indices of the renderers of a track type, in ascending order.
+     *
+     * @param trackType A {@code C.TRACK_TYPE_*} constant.
+     */
+    public List<Integer> getRendererIndices(int trackType) {
+        @Nullable List<Integer> rendererIndices = rendererIndicesByType.get(trackType);
+        return rendererIndices == null
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(rendererIndices);
+    }
+
+    /**
+     * Returns the index of the first renderer of a track type, or {@link C#INDEX_UNSET} if there's
+     * none.
+     *
+     * @param trackType A {@code C.TRACK_TYPE_*} constant.
+     */
+    public int getRendererIndex(int trackType) {
+        @Nullable List<Integer> rendererIndices = rendererIndicesByType.get(trackType);
+        return rendererIndices == null ? C.INDEX_UNSET : rendererIndices.get(0);
+    }
+
+    /**
+     * Returns whether a renderer is disabled by the track selector parameters.
+     */
+    public boolean isRendererDisabled(int rendererIndex) {
+        return rendererDisabled[rendererIndex];
+    }
+
+    /**
+     * Returns whether the track selector parameters have a selection override for a renderer.
+     */
+    public boolean hasSelectionOverride(int rendererIndex) {
+        return rendererHasSelectionOverride[rendererIndex];
+    }
+
+    /**
+     * Returns all tracks, ordered by renderer, group and track index.
+     */
+    public List<Track> getTracks() {
+        return tracks;
+    }
+
+    /**
+     * Returns the tracks of a renderer, ordered by group and track index.
+     */
+    public List<Track> getTracks(int rendererIndex) {
+        return tracks.subList(
+                rendererTrackOffsets[rendererIndex], rendererTrackOffsets[rendererIndex + 1]);
+    }
+
+    /**
+     * Returns whether any renderer of a track type has tracks.
+     *
+     * @param trackType A {@code C.TRACK_TYPE_*} constant.
+     */
+    public boolean hasTracks(int trackType) {
+        List<Integer> rendererIndices = getRendererIndices(trackType);
+        for (int i = 0; i < rendererIndices.size(); i++) {
+            if (!getTracks(rendererIndices.get(i)).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether this is the snapshot of the given mapping, parameters and selections. The
+     * mapping and parameters are immutable and replaced whenever they change, so their references are
+     * compared. The player wraps its selections in a new array on every call, so the arrays are
+     * compared by content.
+     */
+    private boolean isSnapshotOf(
+            @Nullable MappedTrackInfo mappedTrackInfo,
+            @Nullable DefaultTrackSelector.Parameters parameters,
+            @Nullable TrackSelectionArray trackSelections) {
+        return this.mappedTrackInfo == mappedTrackInfo
+                && this.parameters == parameters
+                && Util.areEqual(this.trackSelections, trackSelections);
+    }
+}
@@ -21,7 +21,6 @@ import android.app.AlertDialog;
 import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.LinearLayout;
 import android.widget.ScrollView;
@@ -34,9 +33,9 @@ import com.google.android.exoplayer2.source.TrackGroupArray;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector.SelectionOverride;
 import com.google.android.exoplayer2.trackselection.MappingTrackSelector.MappedTrackInfo;
-import com.google.android.exoplayer2.trackselection.TrackSelectionUtil;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -57,12 +56,17 @@ public final class TrackSelectionDialogBuilder {
     private boolean allowAdaptiveSelections;
     private boolean allowMultipleOverrides;
     private boolean showDisableOption;
+    private boolean useRecyclerView;
     @Nullable
     private TrackNameProvider trackNameProvider;
     private boolean isDisabled;
     private List<SelectionOverride> overrides;
     @Nullable
     private Comparator<Format> trackFormatComparator;
+    @Nullable
+    private View preparedDialogView;
+    @Nullable
+    private Dialog.OnClickListener preparedOkClickListener;
 
     /**
      * Creates a builder for a track selection dialog.
@@ -115,13 +119,10 @@ public final class TrackSelectionDialogBuilder {
 
         this.callback =
                 (newIsDisabled, newOverrides) ->
-                        trackSelector.setParameters(
-                                TrackSelectionUtil.updateParametersWithOverride(
-                                        selectionParameters,
-                                        rendererIndex,
-                                        rendererTrackGroups,
-                                        newIsDisabled,
-                                        newOverrides.isEmpty() ? null : newOverrides.get(0)));
+                        new TrackSelectionTransaction(trackSelector)
+                                .setRendererSelection(
+                                        rendererIndex, rendererTrackGroups, newIsDisabled, newOverrides)
+                                .commit();
     }
 
     /**
@@ -209,6 +210,19 @@ public final class TrackSelectionDialogBuilder {
         return this;
     }
 
+    /**
+     * Sets whether the tracks are shown in a {@link androidx.recyclerview.widget.RecyclerView}, so
+     * that views are only created for the tracks on screen. See {@link
+     * TrackSelectionView#setUseRecyclerView(boolean)}.
+     *
+     * @param useRecyclerView Whether the tracks are shown in a RecyclerView.
+     * @return This builder, for convenience.
+     */
+    public TrackSelectionDialogBuilder setUseRecyclerView(boolean useRecyclerView) {
+        this.useRecyclerView = useRecyclerView;
+        return this;
+    }
+
     /**
      * Sets a {@link Comparator} used to determine the display order of the tracks within each track
      * group.
@@ -231,36 +245,40 @@ public final class TrackSelectionDialogBuilder {
         return this;
     }
 
+    /**
+     * Creates the view of the dialog ahead of {@link #build()}, for example when the button that
+     * opens the dialog is pressed, so that the dialog can be shown in the frame in which it's built.
+     * Settings changed after this call don't apply to the prepared view.
+     *
+     * @return This builder, for convenience.
+     */
+    public TrackSelectionDialogBuilder prepare() {
+        preparedDialogView = createDialogView();
+        preparedOkClickListener = setUpDialogView(preparedDialogView);
+        // Resolve the AndroidX dialog builder now rather than when building.
+        AndroidXAlertDialogBuilder.get();
+        return this;
+    }
+
     /**
      * Builds the dialog.
      */
     public Dialog build() {
-        @Nullable Dialog dialog = buildForAndroidX();
-        return dialog == null ? buildForPlatform() : dialog;
+        @Nullable View dialogView = preparedDialogView;
+        @Nullable Dialog.OnClickListener okClickListener = preparedOkClickListener;
+        // A view can only be shown by one dialog.
+        preparedDialogView = null;
+        preparedOkClickListener = null;
+        if (dialogView == null || okClickListener == null) {
+            dialogView = createDialogView();
+            okClickListener = setUpDialogView(dialogView);
+        }
+        @Nullable Dialog dialog = buildForAndroidX(dialogView, okClickListener);
+        return dialog == null ? buildForPlatform(dialogView, okClickListener) : dialog;
     }
 
-    private Dialog buildForPlatform() {
-        AlertDialog.Builder builder = new AlertDialog.Builder(context, themeResId);
-
-        // Inflate with the builder's context to ensure the correct style is used.
-        LayoutInflater dialogInflater = LayoutInflater.from(builder.getContext());
-
-//    View dialogView = dialogInflater.inflate(com.google.android.exoplayer2.ui.R.layout.exo_track_selection_dialog, /* root= */ null);
-        // Inflate dialog here
-        ScrollView dialogView = new ScrollView(context);
-        dialogView.setLayoutParams(new ScrollView.LayoutParams(ScrollView.LayoutParams.WRAP_CONTENT, ScrollView.LayoutParams.MATCH_PARENT));
-
-        // Create track selection view
-        TrackSelectionView trackSelectionView = new TrackSelectionView(context);
-        trackSelectionView.setLayoutParams(new LinearLayout.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT, LinearLayout.LayoutParams.WRAP_CONTENT));
-        trackSelectionView.setTag(trackSelectionTag);
-
-        // Add to dialog view
-        dialogView.addView(trackSelectionView);
-
-        Dialog.OnClickListener okClickListener = setUpDialogView(dialogView);
-
-        return builder
+    private Dialog buildForPlatform(View dialogView, Dialog.OnClickListener okClickListener) {
+        return new AlertDialog.Builder(context, themeResId)
                 .setTitle(title)
                 .setView(dialogView)
                 .setPositiveButton(android.R.string.ok, okClickListener)
@@ -271,54 +289,44 @@ public final class TrackSelectionDialogBuilder {
     // Reflection calls can't verify null safety of return values or parameters.
     @SuppressWarnings("nullness:argument.type.incompatible")
     @Nullable
-    private Dialog buildForAndroidX() {
-        try {
-            // This method uses reflection to avoid a dependency on AndroidX appcompat that adds 800KB to
-            // the APK size even with shrinking. See https://issuetracker.google.com/161514204.
-            // LINT.IfChange
-            Class<?> builderClazz = Class.forName("androidx.appcompat.app.AlertDialog$Builder");
-            Constructor<?> builderConstructor = builderClazz.getConstructor(Context.class, int.class);
-            Object builder = builderConstructor.newInstance(context, themeResId);
-
-            // Inflate with the builder's context to ensure the correct style is used.
-            Context builderContext = (Context) builderClazz.getMethod("getContext").invoke(builder);
-            LayoutInflater dialogInflater = LayoutInflater.from(builderContext);
-
-//      View dialogView =
-//          dialogInflater.inflate(com.google.android.exoplayer2.ui.R.layout.exo_track_selection_dialog, /* root= */ null);
-
-            // Inflate dialog here
-            ScrollView dialogView = new ScrollView(context);
-            dialogView.setLayoutParams(new ScrollView.LayoutParams(ScrollView.LayoutParams.WRAP_CONTENT, ScrollView.LayoutParams.MATCH_PARENT));
-
-            // Create track selection view
-            TrackSelectionView trackSelectionView = new TrackSelectionView(context);
-            trackSelectionView.setLayoutParams(new LinearLayout.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT, LinearLayout.LayoutParams.WRAP_CONTENT));
-            trackSelectionView.setTag(trackSelectionTag);
-
-            // Add to dialog view
-            dialogView.addView(trackSelectionView);
-
-            Dialog.OnClickListener okClickListener = setUpDialogView(dialogView);
-
-            builderClazz.getMethod("setTitle", CharSequence.class).invoke(builder, title);
-            builderClazz.getMethod("setView", View.class).invoke(builder, dialogView);
-            builderClazz
-                    .getMethod("setPositiveButton", int.class, DialogInterface.OnClickListener.class)
-                    .invoke(builder, android.R.string.ok, okClickListener);
-            builderClazz
-                    .getMethod("setNegativeButton", int.class, DialogInterface.OnClickListener.class)
-                    .invoke(builder, android.R.string.cancel, null);
-            return (Dialog) builderClazz.getMethod("create").invoke(builder);
-            // LINT.ThenChange(../../../../../../../../proguard-rules.txt)
-        } catch (ClassNotFoundException e) {
+    private Dialog buildForAndroidX(View dialogView, Dialog.OnClickListener okClickListener) {
+        @Nullable AndroidXAlertDialogBuilder androidXBuilder = AndroidXAlertDialogBuilder.get();
+        if (androidXBuilder == null) {
             // Expected if the AndroidX compat library is not available.
             return null;
+        }
+        try {
+            Object builder = androidXBuilder.constructor.newInstance(context, themeResId);
+            androidXBuilder.setTitle.invoke(builder, title);
+            androidXBuilder.setView.invoke(builder, dialogView);
+            androidXBuilder.setPositiveButton.invoke(builder, android.R.string.ok, okClickListener);
+            androidXBuilder.setNegativeButton.invoke(builder, android.R.string.cancel, null);
+            return (Dialog) androidXBuilder.create.invoke(builder);
         } catch (Exception e) {
             throw new IllegalStateException(e);
         }
     }
 
+    private View createDialogView() {
+        // Create track selection view
+        TrackSelectionView trackSelectionView = new TrackSelectionView(context);
+        trackSelectionView.setTag(trackSelectionTag);
+        if (useRecyclerView) {
+            // The view scrolls its own tracks, so it mustn't be placed in a ScrollView.
+            trackSelectionView.setUseRecyclerView(true);
+            return trackSelectionView;
+        }
+        trackSelectionView.setLayoutParams(new LinearLayout.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT, LinearLayout.LayoutParams.WRAP_CONTENT));
+
+        // Inflate dialog here
+        ScrollView dialogView = new ScrollView(context);
+        dialogView.setLayoutParams(new ScrollView.LayoutParams(ScrollView.LayoutParams.WRAP_CONTENT, ScrollView.LayoutParams.MATCH_PARENT));
+
+        // Add to dialog view
+        dialogView.addView(trackSelectionView);
+        return dialogView;
+    }
+
     private Dialog.OnClickListener setUpDialogView(View dialogView) {
         // Replace with find view by tag
 //    TrackSelectionView selectionView = dialogView.findViewById(com.google.android.exoplayer2.ui.R.id.exo_track_selection_view);
@@ -341,6 +349,59 @@ public final class TrackSelectionDialogBuilder {
                 callback.onTracksSelected(selectionView.getIsDisabled(), selectionView.getOverrides());
     }
 
+    /**
+     * Reflective handles to {@code androidx.appcompat.app.AlertDialog.Builder}, which are looked up
+     * once per process.
+     *
+     * <p>Reflection is used to avoid a dependency on AndroidX appcompat that adds 800KB to the APK
+     * size even with shrinking. See https://issuetracker.google.com/161514204.
+     */
+    private static final class AndroidXAlertDialogBuilder {
+
+        private static boolean resolved;
+        @Nullable
+        private static AndroidXAlertDialogBuilder instance;
+
+        public final Constructor<?> constructor;
+        public final Method setTitle;
+        public final Method setView;
+        public final Method setPositiveButton;
+        public final Method setNegativeButton;
+        public final Method create;
+
+        /**
+         * Returns the handles, or null if the AndroidX compat library is not available.
+         */
+        @Nullable
+        public static synchronized AndroidXAlertDialogBuilder get() {
+            if (!resolved) {
+                try {
+                    instance = new AndroidXAlertDialogBuilder();
+                } catch (ClassNotFoundException e) {
+                    // Expected if the AndroidX compat library is not available.
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                resolved = true;
+            }
+            return instance;
+        }
+
+        private AndroidXAlertDialogBuilder() throws ClassNotFoundException, NoSuchMethodException {
+            // LINT.IfChange
+            Class<?> builderClazz = Class.forName("androidx.appcompat.app.AlertDialog$Builder");
+            constructor = builderClazz.getConstructor(Context.class, int.class);
+            setTitle = builderClazz.getMethod("setTitle", CharSequence.class);
+            setView = builderClazz.getMethod("setView", View.class);
+            setPositiveButton =
+                    builderClazz.getMethod("setPositiveButton", int.class, DialogInterface.OnClickListener.class);
+            setNegativeButton =
+                    builderClazz.getMethod("setNegativeButton", int.class, DialogInterface.OnClickListener.class);
+            create = builderClazz.getMethod("create");
+            // LINT.ThenChange(../../../../../../../../proguard-rules.txt)
+        }
+    }
+
     /**
      * Callback which is invoked when a track selection has been made.
      */
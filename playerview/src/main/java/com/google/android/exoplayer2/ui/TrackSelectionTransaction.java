@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector.Parameters;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector.ParametersBuilder;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector.SelectionOverride;
+import com.google.android.exoplayer2.util.Assertions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects track selection changes for several renderers and applies them to a {@link
+ * DefaultTrackSelector} with a single call to {@link DefaultTrackSelector#setParameters}.
+ *
+ * <p>Each call to {@link DefaultTrackSelector#setParameters} that changes the parameters makes the
+ * player select tracks again, which may discard buffered media. Changes are recorded until {@link
+ * #commit()}, and are then applied to the parameters the track selector has at that time, so that
+ * parameters changed by others since the transaction was started aren't overwritten. Nothing is set
+ * if the changes leave the parameters as they are.
+ *
+ * <p>A transaction can only be committed once.
+ */
+public final class TrackSelectionTransaction {
+
+    private interface Edit {
+        void apply(ParametersBuilder parametersBuilder);
+    }
+
+    private final DefaultTrackSelector trackSelector;
+    private final List<Edit> edits;
+    private boolean committed;
+
+    /**
+     * Starts a transaction.
+     *
+     * @param trackSelector The track selector to which the changes are applied.
+     */
+    public TrackSelectionTransaction(DefaultTrackSelector trackSelector) {
+        this.trackSelector = trackSelector;
+        edits = new ArrayList<>();
+    }
+
+    /**
+     * Sets whether a renderer is disabled.
+     *
+     * @param rendererIndex The renderer index.
+     * @param disabled      Whether the renderer is disabled.
+     * @return This transaction, for convenience.
+     */
+    public TrackSelectionTransaction setRendererDisabled(int rendererIndex, boolean disabled) {
+        return addEdit(
+                parametersBuilder -> parametersBuilder.setRendererDisabled(rendererIndex, disabled));
+    }
+
+    /**
+     * Clears all selection overrides of a renderer, so that the track selector uses its default
+     * selection logic.
+     *
+     * @param rendererIndex The renderer index.
+     * @return This transaction, for convenience.
+     */
+    public TrackSelectionTransaction clearSelectionOverrides(int rendererIndex) {
+        return addEdit(parametersBuilder -> parametersBuilder.clearSelectionOverrides(rendererIndex));
+    }
+
+    /**
+     * Replaces the selection of a renderer with a single override, and enables the renderer.
+     *
+     * @param rendererIndex The renderer index.
+     * @param trackGroups   The track groups of the renderer.
+     * @param override      The override.
+     * @return This transaction, for convenience.
+     */
+    public TrackSelectionTransaction setSelectionOverride(
+            int rendererIndex, TrackGroupArray trackGroups, SelectionOverride override) {
+        return setRendererSelection(rendererIndex, trackGroups, /* isDisabled= */ false, override);
+    }
+
+    /**
+     * Replaces the selection of a renderer, as shown by a {@link TrackSelectionView}.
+     *
+     * @param rendererIndex The renderer index.
+     * @param trackGroups   The track groups of the renderer.
+     * @param isDisabled    Whether the renderer is disabled.
+     * @param override      The selection override, or null to use the default selection logic.
+     * @return This transaction, for convenience.
+     */
+    public TrackSelectionTransaction setRendererSelection(
+            int rendererIndex,
+            TrackGroupArray trackGroups,
+            boolean isDisabled,
+            @Nullable SelectionOverride override) {
+        return addEdit(
+                parametersBuilder -> {
+                    parametersBuilder
+                            .clearSelectionOverrides(rendererIndex)
+                            .setRendererDisabled(rendererIndex, isDisabled);
+                    if (override != null) {
+                        parametersBuilder.setSelectionOverride(rendererIndex, trackGroups, override);
+                    }
+                });
+    }
+
+    /**
+     * Replaces the selection of a renderer, as shown by a {@link TrackSelectionView}. Only the first
+     * override is applied, as a {@link DefaultTrackSelector} holds one override per renderer.
+     *
+     * @param rendererIndex The renderer index.
+     * @param trackGroups   The track groups of the renderer.
+     * @param isDisabled    Whether the renderer is disabled.
+     * @param overrides     The selection overrides.
+     * @return This transaction, for convenience.
+     */
+    public TrackSelectionTransaction setRendererSelection(
+            int rendererIndex,
+            TrackGroupArray trackGroups,
+            boolean isDisabled,
+            List<SelectionOverride> overrides) {
+        return setRendererSelection(
+                rendererIndex, trackGroups, isDisabled, overrides.isEmpty() ? null : overrides.get(0));
+    }
+
+    /**
+     * Applies the recorded changes to the track selector.
+     *
+     * @return Whether the parameters of the track selector were changed.
+     * @throws IllegalStateException If the transaction has already been committed.
+     */
+    public boolean commit() {
+        Assertions.checkState(!committed);
+        committed = true;
+        if (edits.isEmpty()) {
+            return false;
+        }
+        Parameters parameters = trackSelector.getParameters();
+        ParametersBuilder parametersBuilder = parameters.buildUpon();
+        for (int i = 0; i < edits.size(); i++) {
+            edits.get(i).apply(parametersBuilder);
+        }
+        Parameters newParameters = parametersBuilder.build();
+        if (newParameters.equals(parameters)) {
+            return false;
+        }
+        trackSelector.setParameters(newParameters);
+        return true;
+    }
+
+    private TrackSelectionTransaction addEdit(Edit edit) {
+        Assertions.checkState(!committed);
+        edits.add(edit);
+        return this;
+    }
+}
@@ -16,17 +16,22 @@
 package com.google.android.exoplayer2.ui;
 
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.graphics.Color;
 import android.util.AttributeSet;
 import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.view.ViewGroup;
 import android.widget.CheckedTextView;
 import android.widget.LinearLayout;
 
 import androidx.annotation.AttrRes;
 import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.Format;
@@ -40,6 +45,7 @@ import com.google.android.exoplayer2.util.Assertions;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
@@ -48,6 +54,11 @@ import java.util.List;
  */
 public class TrackSelectionView extends LinearLayout {
 
+    /**
+     * The payload of {@link TrackAdapter} changes that only affect whether a track is checked.
+     */
+    private static final Object PAYLOAD_CHECKED = new Object();
+
     private final int selectableItemBackgroundResourceId;
     private final LayoutInflater inflater;
     private final CheckedTextView disableView;
@@ -58,6 +69,11 @@ public class TrackSelectionView extends LinearLayout {
     private boolean allowMultipleOverrides;
     private TrackNameProvider trackNameProvider;
     private CheckedTextView[][] trackViews;
+    @Nullable
+    private RecyclerView recyclerView;
+    @Nullable
+    private TrackAdapter trackAdapter;
+    private List<TrackItem> trackItems;
     private MappedTrackInfo mappedTrackInfo;
     private int rendererIndex;
     private TrackGroupArray trackGroups;
@@ -112,6 +128,7 @@ public class TrackSelectionView extends LinearLayout {
         componentListener = new ComponentListener();
         trackNameProvider = new DefaultTrackNameProvider(getResources());
         trackGroups = TrackGroupArray.EMPTY;
+        trackItems = Collections.emptyList();
 
         // View for disabling the renderer.
         disableView =
@@ -207,6 +224,35 @@ public class TrackSelectionView extends LinearLayout {
         disableView.setVisibility(showDisableOption ? View.VISIBLE : View.GONE);
     }
 
+    /**
+     * Sets whether the tracks are shown in a {@link RecyclerView}, so that views are only created for
+     * the tracks on screen. This is recommended for renderers with many tracks, such as those of
+     * multi-language adaptive streams. The view must then be given a bounded height, and mustn't be
+     * placed in a {@link android.widget.ScrollView}.
+     *
+     * @param useRecyclerView Whether the tracks are shown in a {@link RecyclerView}.
+     */
+    public void setUseRecyclerView(boolean useRecyclerView) {
+        if (useRecyclerView == (recyclerView != null)) {
+            return;
+        }
+        removeTrackViews();
+        if (useRecyclerView) {
+            trackAdapter = new TrackAdapter();
+            recyclerView = new RecyclerView(context);
+            recyclerView.setLayoutParams(
+                    new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+            recyclerView.setLayoutManager(new LinearLayoutManager(context));
+            recyclerView.setAdapter(trackAdapter);
+            addView(recyclerView);
+        } else {
+            recyclerView = null;
+            trackAdapter = null;
+            trackItems = Collections.emptyList();
+        }
+        updateViews();
+    }
+
     /**
      * Sets the {@link TrackNameProvider} used to generate the user visible name of each track and
      * updates the view with track names queried from the specified provider.
@@ -276,11 +322,25 @@ public class TrackSelectionView extends LinearLayout {
         return overrideList;
     }
 
-    private void updateViews() {
-        // Remove previous per-track views.
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        if (trackNameProvider instanceof DefaultTrackNameProvider) {
+            ((DefaultTrackNameProvider) trackNameProvider).clearCache();
+        }
+    }
+
+    private void removeTrackViews() {
         for (int i = getChildCount() - 1; i >= 3; i--) {
             removeViewAt(i);
         }
+    }
+
+    private void updateViews() {
+        if (trackAdapter == null) {
+            // Remove previous per-track views.
+            removeTrackViews();
+        }
 
         if (mappedTrackInfo == null) {
             // The view is not initialized.
@@ -293,6 +353,12 @@ public class TrackSelectionView extends LinearLayout {
 
         trackGroups = mappedTrackInfo.getTrackGroups(rendererIndex);
 
+        if (trackAdapter != null) {
+            trackItems = createTrackItems();
+            updateViewStates();
+            return;
+        }
+
         // Add per-track views.
         trackViews = new CheckedTextView[trackGroups.length][];
         boolean enableMultipleChoiceForMultipleOverrides = shouldEnableMultiGroupSelection();
@@ -301,13 +367,7 @@ public class TrackSelectionView extends LinearLayout {
             boolean enableMultipleChoiceForAdaptiveSelections = shouldEnableAdaptiveSelection(groupIndex);
             trackViews[groupIndex] = new CheckedTextView[group.length];
 
-            TrackInfo[] trackInfos = new TrackInfo[group.length];
-            for (int trackIndex = 0; trackIndex < group.length; trackIndex++) {
-                trackInfos[trackIndex] = new TrackInfo(groupIndex, trackIndex, group.getFormat(trackIndex));
-            }
-            if (trackInfoComparator != null) {
-                Arrays.sort(trackInfos, trackInfoComparator);
-            }
+            TrackInfo[] trackInfos = createTrackInfos(groupIndex);
 
             for (int trackIndex = 0; trackIndex < trackInfos.length; trackIndex++) {
                 if (trackIndex == 0) {
@@ -339,9 +399,67 @@ public class TrackSelectionView extends LinearLayout {
         updateViewStates();
     }
 
+    private TrackInfo[] createTrackInfos(int groupIndex) {
+        TrackGroup group = trackGroups.get(groupIndex);
+        TrackInfo[] trackInfos = new TrackInfo[group.length];
+        for (int trackIndex = 0; trackIndex < group.length; trackIndex++) {
+            trackInfos[trackIndex] = new TrackInfo(groupIndex, trackIndex, group.getFormat(trackIndex));
+        }
+        if (trackInfoComparator != null) {
+            Arrays.sort(trackInfos, trackInfoComparator);
+        }
+        return trackInfos;
+    }
+
+    /**
+     * Returns the rows shown by the {@link TrackAdapter}, all unchecked. Track names and supports are
+     * only queried here, so checking tracks doesn't query them again.
+     */
+    private List<TrackItem> createTrackItems() {
+        List<TrackItem> items = new ArrayList<>();
+        boolean enableMultipleChoiceForMultipleOverrides = shouldEnableMultiGroupSelection();
+        for (int groupIndex = 0; groupIndex < trackGroups.length; groupIndex++) {
+            TrackInfo[] trackInfos = createTrackInfos(groupIndex);
+            if (trackInfos.length == 0) {
+                continue;
+            }
+            boolean multipleChoice =
+                    enableMultipleChoiceForMultipleOverrides || shouldEnableAdaptiveSelection(groupIndex);
+            items.add(new TrackItem(groupIndex));
+            for (TrackInfo trackInfo : trackInfos) {
+                boolean enabled =
+                        mappedTrackInfo.getTrackSupport(rendererIndex, groupIndex, trackInfo.trackIndex)
+                                == C.FORMAT_HANDLED;
+                items.add(
+                        new TrackItem(
+                                trackInfo,
+                                trackNameProvider.getTrackName(trackInfo.format),
+                                multipleChoice,
+                                enabled,
+                                /* checked= */ false));
+            }
+        }
+        return items;
+    }
+
     private void updateViewStates() {
         disableView.setChecked(isDisabled);
         defaultView.setChecked(!isDisabled && overrides.size() == 0);
+        if (trackAdapter != null) {
+            List<TrackItem> items = new ArrayList<>(trackItems.size());
+            for (int i = 0; i < trackItems.size(); i++) {
+                TrackItem item = trackItems.get(i);
+                @Nullable TrackInfo trackInfo = item.trackInfo;
+                boolean checked = false;
+                if (trackInfo != null) {
+                    @Nullable SelectionOverride override = overrides.get(trackInfo.groupIndex);
+                    checked = override != null && override.containsTrack(trackInfo.trackIndex);
+                }
+                items.add(item.withChecked(checked));
+            }
+            trackAdapter.setItems(items);
+            return;
+        }
         for (int i = 0; i < trackViews.length; i++) {
             SelectionOverride override = overrides.get(i);
             for (int j = 0; j < trackViews[i].length; j++) {
@@ -463,6 +581,197 @@ public class TrackSelectionView extends LinearLayout {
         }
     }
 
+    /**
+     * A row of the {@link TrackAdapter}, which is either a track or the divider before a track group.
+     */
+    private static final class TrackItem {
+
+        /**
+         * The track, or null if this is a divider.
+         */
+        @Nullable
+        public final TrackInfo trackInfo;
+        public final long id;
+        @Nullable
+        public final String name;
+        public final boolean multipleChoice;
+        public final boolean enabled;
+        public final boolean checked;
+
+        /**
+         * Creates the divider before the track group with index {@code groupIndex}.
+         */
+        public TrackItem(int groupIndex) {
+            trackInfo = null;
+            id = ((long) groupIndex << 32) | 0xFFFFFFFFL;
+            name = null;
+            multipleChoice = false;
+            enabled = false;
+            checked = false;
+        }
+
+        public TrackItem(
+                TrackInfo trackInfo,
+                String name,
+                boolean multipleChoice,
+                boolean enabled,
+                boolean checked) {
+            this.trackInfo = trackInfo;
+            id = ((long) trackInfo.groupIndex << 32) | trackInfo.trackIndex;
+            this.name = name;
+            this.multipleChoice = multipleChoice;
+            this.enabled = enabled;
+            this.checked = checked;
+        }
+
+        public TrackItem withChecked(boolean checked) {
+            return checked == this.checked || trackInfo == null
+                    ? this
+                    : new TrackItem(trackInfo, name, multipleChoice, enabled, checked);
+        }
+
+        /**
+         * Returns whether the row looks the same as {@code other}, ignoring whether it's checked.
+         */
+        public boolean hasSameContentsAs(TrackItem other) {
+            return multipleChoice == other.multipleChoice
+                    && enabled == other.enabled
+                    && (name == null ? other.name == null : name.equals(other.name));
+        }
+    }
+
+    /**
+     * Shows {@link TrackItem TrackItems} in a {@link RecyclerView}. Rows have stable IDs, and new rows
+     * are diffed against the shown ones, so checking a track only rebinds the rows whose checked state
+     * changed.
+     */
+    private final class TrackAdapter extends RecyclerView.Adapter<TrackViewHolder> {
+
+        private static final int VIEW_TYPE_DIVIDER = 0;
+        private static final int VIEW_TYPE_SINGLE_CHOICE = 1;
+        private static final int VIEW_TYPE_MULTIPLE_CHOICE = 2;
+
+        private List<TrackItem> items;
+
+        public TrackAdapter() {
+            items = Collections.emptyList();
+            setHasStableIds(true);
+        }
+
+        public void setItems(List<TrackItem> newItems) {
+            List<TrackItem> oldItems = items;
+            items = newItems;
+            if (oldItems.isEmpty() || newItems.isEmpty()) {
+                notifyDataSetChanged();
+                return;
+            }
+            DiffUtil.calculateDiff(
+                            new DiffUtil.Callback() {
+                                @Override
+                                public int getOldListSize() {
+                                    return oldItems.size();
+                                }
+
+                                @Override
+                                public int getNewListSize() {
+                                    return newItems.size();
+                                }
+
+                                @Override
+                                public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                                    return oldItems.get(oldItemPosition).id == newItems.get(newItemPosition).id;
+                                }
+
+                                @Override
+                                public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                                    TrackItem oldItem = oldItems.get(oldItemPosition);
+                                    TrackItem newItem = newItems.get(newItemPosition);
+                                    return oldItem.checked == newItem.checked && oldItem.hasSameContentsAs(newItem);
+                                }
+
+                                @Nullable
+                                @Override
+                                public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                                    return oldItems.get(oldItemPosition).hasSameContentsAs(newItems.get(newItemPosition))
+                                            ? PAYLOAD_CHECKED
+                                            : null;
+                                }
+                            },
+                            /* detectMoves= */ false)
+                    .dispatchUpdatesTo(this);
+        }
+
+        @Override
+        public int getItemCount() {
+            return items.size();
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return items.get(position).id;
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            TrackItem item = items.get(position);
+            if (item.trackInfo == null) {
+                return VIEW_TYPE_DIVIDER;
+            }
+            return item.multipleChoice ? VIEW_TYPE_MULTIPLE_CHOICE : VIEW_TYPE_SINGLE_CHOICE;
+        }
+
+        @Override
+        public TrackViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            if (viewType == VIEW_TYPE_DIVIDER) {
+                View dividerView = new View(context);
+                dividerView.setLayoutParams(
+                        new RecyclerView.LayoutParams(RecyclerView.LayoutParams.MATCH_PARENT, 1));
+                dividerView.setBackgroundColor(Color.DKGRAY);
+                return new TrackViewHolder(dividerView);
+            }
+            int trackViewLayoutId =
+                    viewType == VIEW_TYPE_MULTIPLE_CHOICE
+                            ? android.R.layout.simple_list_item_multiple_choice
+                            : android.R.layout.simple_list_item_single_choice;
+            CheckedTextView trackView =
+                    (CheckedTextView) inflater.inflate(trackViewLayoutId, parent, false);
+            trackView.setBackgroundResource(selectableItemBackgroundResourceId);
+            return new TrackViewHolder(trackView);
+        }
+
+        @Override
+        public void onBindViewHolder(TrackViewHolder holder, int position, List<Object> payloads) {
+            if (!payloads.isEmpty() && holder.itemView instanceof CheckedTextView) {
+                // Only the checked state changed.
+                ((CheckedTextView) holder.itemView).setChecked(items.get(position).checked);
+            } else {
+                onBindViewHolder(holder, position);
+            }
+        }
+
+        @Override
+        public void onBindViewHolder(TrackViewHolder holder, int position) {
+            TrackItem item = items.get(position);
+            if (item.trackInfo == null) {
+                return;
+            }
+            CheckedTextView trackView = (CheckedTextView) holder.itemView;
+            trackView.setText(item.name);
+            trackView.setTag(item.trackInfo);
+            trackView.setChecked(item.checked);
+            trackView.setEnabled(item.enabled);
+            trackView.setFocusable(item.enabled);
+            trackView.setOnClickListener(item.enabled ? componentListener : null);
+        }
+    }
+
+    private static final class TrackViewHolder extends RecyclerView.ViewHolder {
+
+        public TrackViewHolder(View itemView) {
+            super(itemView);
+        }
+    }
+
     private class ComponentListener implements OnClickListener {
 
         @Override
@@ -0,0 +1,371 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.hardware.display.DisplayManager;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.view.Display;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.google.android.exoplayer2.util.Util;
+
+/**
+ * Caps the video frame rate selected by a {@link DefaultTrackSelector} to the refresh rate of the
+ * display, and to {@link #POWER_SAVE_MAX_FRAME_RATE} while the device is in power save mode.
+ *
+ * <p>Decoding frames that the display can't show is wasted work, for example 60 fps renditions on
+ * a 50 Hz TV output. The display state is read from a {@link DisplaySource}, and the cap is updated
+ * whenever the source reports a change.
+ *
+ * <p>The cap never raises a maximum frame rate set by the app. The app's value is restored when the
+ * cap is lifted, unless the app has changed the maximum frame rate in the meantime.
+ */
+/* package */ final class VideoFrameRateLimiter {
+
+    /**
+     * Provides the state of the display that shows the video.
+     */
+    public interface DisplaySource {
+
+        /**
+         * Receives notifications of changes to the display state.
+         */
+        interface Listener {
+
+            /**
+             * Called when the refresh rate or power save mode may have changed.
+             */
+            void onDisplayStateChanged();
+        }
+
+        /**
+         * Returns the refresh rate of the display in Hz, or {@link Format#NO_VALUE} if it's unknown.
+         */
+        float getRefreshRate();
+
+        /**
+         * Returns whether the device is in power save mode.
+         */
+        boolean isPowerSaveMode();
+
+        /**
+         * Sets the listener to notify of display state changes.
+         *
+         * @param listener The listener, or null to stop listening for changes.
+         */
+        void setListener(@Nullable Listener listener);
+    }
+
+    /**
+     * The maximum frame rate selected while the device is in power save mode.
+     */
+    public static final int POWER_SAVE_MAX_FRAME_RATE = 30;
+
+    private DisplaySource displaySource;
+    @Nullable
+    private DefaultTrackSelector trackSelector;
+    private boolean enabled;
+    private int frameRateCap;
+    private int appliedMaxVideoFrameRate;
+    private int appMaxVideoFrameRate;
+
+    /**
+     * @param displaySource The source of the display state.
+     */
+    public VideoFrameRateLimiter(DisplaySource displaySource) {
+        this.displaySource = displaySource;
+        frameRateCap = Format.NO_VALUE;
+        appliedMaxVideoFrameRate = Format.NO_VALUE;
+    }
+
+    /**
+     * Replaces the source of the display state, for example with a fake one in tests.
+     *
+     * @param displaySource The source of the display state.
+     */
+    /* package */ void setDisplaySource(DisplaySource displaySource) {
+        if (this.displaySource == displaySource) {
+            return;
+        }
+        if (enabled) {
+            this.displaySource.setListener(null);
+            displaySource.setListener(this::updateFrameRateCap);
+        }
+        this.displaySource = displaySource;
+        updateFrameRateCap();
+    }
+
+    /**
+     * Sets whether the video frame rate is capped. Disabling clears the frame rate constraint of the
+     * track selector.
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled == enabled) {
+            return;
+        }
+        this.enabled = enabled;
+        if (enabled) {
+            displaySource.setListener(this::updateFrameRateCap);
+            updateFrameRateCap();
+        } else {
+            displaySource.setListener(null);
+            clearConstraint();
+        }
+    }
+
+    /**
+     * Sets the track selector to apply the cap to, clearing it from the previous one.
+     *
+     * @param trackSelector The track selector, or null if the player doesn't have one.
+     */
+    public void setTrackSelector(@Nullable DefaultTrackSelector trackSelector) {
+        if (this.trackSelector == trackSelector) {
+            return;
+        }
+        if (enabled) {
+            clearConstraint();
+        }
+        this.trackSelector = trackSelector;
+        if (enabled) {
+            updateFrameRateCap();
+        }
+    }
+
+    /**
+     * Returns the frame rate cap applied to the track selector, or {@link Format#NO_VALUE} if none
+     * is applied.
+     */
+    public int getFrameRateCap() {
+        return frameRateCap;
+    }
+
+    /**
+     * Returns the frame rate cap for a display with the given state.
+     *
+     * @param refreshRate     The refresh rate of the display in Hz, or {@link Format#NO_VALUE} if it's
+     *                        unknown.
+     * @param isPowerSaveMode Whether the device is in power save mode.
+     * @return The frame rate cap, or {@link Format#NO_VALUE} if the frame rate shouldn't be capped.
+     */
+    public static int getFrameRateCap(float refreshRate, boolean isPowerSaveMode) {
+        // Round so that 59.94 Hz displays still accept 60 fps content.
+        int frameRateCap = refreshRate > 0 ? Math.round(refreshRate) : Format.NO_VALUE;
+        if (isPowerSaveMode) {
+            frameRateCap =
+                    frameRateCap == Format.NO_VALUE
+                            ? POWER_SAVE_MAX_FRAME_RATE
+                            : Math.min(frameRateCap, POWER_SAVE_MAX_FRAME_RATE);
+        }
+        return frameRateCap;
+    }
+
+    private void updateFrameRateCap() {
+        @Nullable DefaultTrackSelector trackSelector = this.trackSelector;
+        if (!enabled || trackSelector == null) {
+            return;
+        }
+        int frameRateCap =
+                getFrameRateCap(displaySource.getRefreshRate(), displaySource.isPowerSaveMode());
+        if (frameRateCap == this.frameRateCap) {
+            return;
+        }
+        this.frameRateCap = frameRateCap;
+        if (frameRateCap == Format.NO_VALUE) {
+            restoreMaxVideoFrameRate(trackSelector);
+            return;
+        }
+        int maxVideoFrameRate = trackSelector.getParameters().maxVideoFrameRate;
+        if (appliedMaxVideoFrameRate == Format.NO_VALUE
+                || maxVideoFrameRate != appliedMaxVideoFrameRate) {
+            // The current value was set by the app, either before the cap or since it was applied.
+            appMaxVideoFrameRate = maxVideoFrameRate;
+        }
+        appliedMaxVideoFrameRate = Math.min(frameRateCap, appMaxVideoFrameRate);
+        if (appliedMaxVideoFrameRate != maxVideoFrameRate) {
+            trackSelector.setParameters(
+                    trackSelector.buildUponParameters().setMaxVideoFrameRate(appliedMaxVideoFrameRate));
+        }
+    }
+
+    private void clearConstraint() {
+        if (trackSelector != null) {
+            restoreMaxVideoFrameRate(trackSelector);
+        }
+        frameRateCap = Format.NO_VALUE;
+    }
+
+    private void restoreMaxVideoFrameRate(DefaultTrackSelector trackSelector) {
+        if (appliedMaxVideoFrameRate == Format.NO_VALUE) {
+            return;
+        }
+        // Leave the value alone if the app has changed it since the cap was applied.
+        if (trackSelector.getParameters().maxVideoFrameRate == appliedMaxVideoFrameRate
+                && appliedMaxVideoFrameRate != appMaxVideoFrameRate) {
+            trackSelector.setParameters(
+                    trackSelector.buildUponParameters().setMaxVideoFrameRate(appMaxVideoFrameRate));
+        }
+        appliedMaxVideoFrameRate = Format.NO_VALUE;
+    }
+
+    /**
+     * A {@link DisplaySource} for the display a view is shown on. Refresh rate changes are received
+     * through {@link DisplayManager} and power save mode changes through {@link
+     * PowerManager#ACTION_POWER_SAVE_MODE_CHANGED}, while the view is attached to a window.
+     */
+    public static final class ViewDisplaySource extends BroadcastReceiver
+            implements DisplaySource, DisplayManager.DisplayListener, View.OnAttachStateChangeListener {
+
+        private final View view;
+        private final Context applicationContext;
+        private final Handler handler;
+        @Nullable
+        private final DisplayManager displayManager;
+        @Nullable
+        private final PowerManager powerManager;
+
+        @Nullable
+        private Listener listener;
+        private boolean registered;
+
+        /**
+         * @param view The view whose display is tracked.
+         */
+        public ViewDisplaySource(View view) {
+            this.view = view;
+            applicationContext = view.getContext().getApplicationContext();
+            handler = Util.createHandlerForCurrentLooper();
+            displayManager =
+                    (DisplayManager) applicationContext.getSystemService(Context.DISPLAY_SERVICE);
+            powerManager = (PowerManager) applicationContext.getSystemService(Context.POWER_SERVICE);
+        }
+
+        @Override
+        public float getRefreshRate() {
+            @Nullable Display display = getDisplay();
+            return display != null ? display.getRefreshRate() : Format.NO_VALUE;
+        }
+
+        @Override
+        public boolean isPowerSaveMode() {
+            return powerManager != null && powerManager.isPowerSaveMode();
+        }
+
+        @Override
+        public void setListener(@Nullable Listener listener) {
+            this.listener = listener;
+            if (listener != null) {
+                view.addOnAttachStateChangeListener(this);
+                if (view.isAttachedToWindow()) {
+                    register();
+                }
+            } else {
+                view.removeOnAttachStateChangeListener(this);
+                unregister();
+            }
+        }
+
+        // BroadcastReceiver implementation.
+
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            notifyListener();
+        }
+
+        // DisplayManager.DisplayListener implementation.
+
+        @Override
+        public void onDisplayAdded(int displayId) {
+            // Do nothing.
+        }
+
+        @Override
+        public void onDisplayRemoved(int displayId) {
+            // Do nothing.
+        }
+
+        @Override
+        public void onDisplayChanged(int displayId) {
+            @Nullable Display display = getDisplay();
+            if (display != null && display.getDisplayId() == displayId) {
+                notifyListener();
+            }
+        }
+
+        // View.OnAttachStateChangeListener implementation.
+
+        @Override
+        public void onViewAttachedToWindow(View view) {
+            register();
+            // The view may have moved to another display while detached.
+            notifyListener();
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View view) {
+            unregister();
+        }
+
+        @Nullable
+        private Display getDisplay() {
+            @Nullable Display display = view.getDisplay();
+            if (display == null && displayManager != null) {
+                display = displayManager.getDisplay(Display.DEFAULT_DISPLAY);
+            }
+            return display;
+        }
+
+        private void register() {
+            if (registered) {
+                return;
+            }
+            registered = true;
+            if (displayManager != null) {
+                displayManager.registerDisplayListener(this, handler);
+            }
+            applicationContext.registerReceiver(
+                    this,
+                    new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED),
+                    /* broadcastPermission= */ null,
+                    handler);
+        }
+
+        private void unregister() {
+            if (!registered) {
+                return;
+            }
+            registered = false;
+            if (displayManager != null) {
+                displayManager.unregisterDisplayListener(this);
+            }
+            applicationContext.unregisterReceiver(this);
+        }
+
+        private void notifyListener() {
+            if (listener != null) {
+                listener.onDisplayStateChanged();
+            }
+        }
+    }
+}
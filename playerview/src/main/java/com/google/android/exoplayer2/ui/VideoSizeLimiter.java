@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import android.os.Handler;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector.Parameters;
+import com.google.android.exoplayer2.util.Util;
+
+/**
+ * Limits the video size selected by a {@link DefaultTrackSelector} to the size of the view that
+ * displays the video.
+ *
+ * <p>The viewport size of the track selector is set to the size of the view, and the maximum video
+ * size to the view size plus {@link #MAX_VIDEO_SIZE_HEADROOM headroom}, so that the rendition that
+ * just covers the view stays selectable. Size changes are debounced, and only applied when the size
+ * differs from the applied one by more than {@link #HYSTERESIS_FRACTION}, so that resizes don't
+ * cause renditions to be switched back and forth.
+ *
+ * <p>The limit never raises a maximum video size set by the app. The app's maximum video size and
+ * viewport are restored when the limiter is disabled or moved to another track selector, unless the
+ * app has changed them in the meantime.
+ */
+/* package */ final class VideoSizeLimiter implements View.OnLayoutChangeListener {
+
+    /**
+     * The time for which the view size must be stable before it's applied, in milliseconds.
+     */
+    public static final long DEBOUNCE_MS = 500;
+    /**
+     * The fraction by which either dimension must change before a new size is applied.
+     */
+    public static final float HYSTERESIS_FRACTION = 0.2f;
+    /**
+     * The fraction of the view size by which the maximum video size exceeds it.
+     */
+    public static final float MAX_VIDEO_SIZE_HEADROOM = 0.5f;
+
+    private final View view;
+    private final Handler handler;
+    private final Runnable applyViewSizeRunnable;
+
+    @Nullable
+    private DefaultTrackSelector trackSelector;
+    private boolean enabled;
+    private int appliedWidth;
+    private int appliedHeight;
+    private int appliedMaxVideoWidth;
+    private int appliedMaxVideoHeight;
+    private int appMaxVideoWidth;
+    private int appMaxVideoHeight;
+    private int appViewportWidth;
+    private int appViewportHeight;
+    private boolean appViewportOrientationMayChange;
+
+    /**
+     * @param view The view whose size limits the video size.
+     */
+    public VideoSizeLimiter(View view) {
+        this.view = view;
+        handler = Util.createHandlerForCurrentLooper();
+        applyViewSizeRunnable = this::applyViewSize;
+        appliedWidth = C.LENGTH_UNSET;
+        appliedHeight = C.LENGTH_UNSET;
+    }
+
+    /**
+     * Sets whether the video size is limited to the view size. Disabling restores the maximum video
+     * size and viewport that the app set on the track selector.
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled == enabled) {
+            return;
+        }
+        this.enabled = enabled;
+        if (enabled) {
+            view.addOnLayoutChangeListener(this);
+            applyViewSize();
+        } else {
+            view.removeOnLayoutChangeListener(this);
+            clearConstraints();
+        }
+    }
+
+    /**
+     * Sets the track selector to apply constraints to, restoring the app's constraints on the
+     * previous one.
+     *
+     * @param trackSelector The track selector, or null if the player doesn't have one.
+     */
+    public void setTrackSelector(@Nullable DefaultTrackSelector trackSelector) {
+        if (this.trackSelector == trackSelector) {
+            return;
+        }
+        if (enabled) {
+            clearConstraints();
+        }
+        this.trackSelector = trackSelector;
+        if (enabled) {
+            applyViewSize();
+        }
+    }
+
+    // OnLayoutChangeListener implementation.
+
+    @Override
+    public void onLayoutChange(
+            View view,
+            int left,
+            int top,
+            int right,
+            int bottom,
+            int oldLeft,
+            int oldTop,
+            int oldRight,
+            int oldBottom) {
+        if (right - left == oldRight - oldLeft && bottom - top == oldBottom - oldTop) {
+            return;
+        }
+        handler.removeCallbacks(applyViewSizeRunnable);
+        handler.postDelayed(applyViewSizeRunnable, DEBOUNCE_MS);
+    }
+
+    private void applyViewSize() {
+        handler.removeCallbacks(applyViewSizeRunnable);
+        @Nullable DefaultTrackSelector trackSelector = this.trackSelector;
+        int width = view.getWidth();
+        int height = view.getHeight();
+        if (!enabled || trackSelector == null || width <= 0 || height <= 0) {
+            return;
+        }
+        if (appliedWidth != C.LENGTH_UNSET
+                && !exceedsHysteresis(width, appliedWidth)
+                && !exceedsHysteresis(height, appliedHeight)) {
+            return;
+        }
+        Parameters parameters = trackSelector.getParameters();
+        if (!hasAppliedConstraints(parameters)) {
+            // The current values were set by the app, either before the limit or since it was applied.
+            appMaxVideoWidth = parameters.maxVideoWidth;
+            appMaxVideoHeight = parameters.maxVideoHeight;
+            appViewportWidth = parameters.viewportWidth;
+            appViewportHeight = parameters.viewportHeight;
+            appViewportOrientationMayChange = parameters.viewportOrientationMayChange;
+        }
+        appliedWidth = width;
+        appliedHeight = height;
+        appliedMaxVideoWidth =
+                Math.min((int) (width * (1 + MAX_VIDEO_SIZE_HEADROOM)), appMaxVideoWidth);
+        appliedMaxVideoHeight =
+                Math.min((int) (height * (1 + MAX_VIDEO_SIZE_HEADROOM)), appMaxVideoHeight);
+        trackSelector.setParameters(
+                trackSelector
+                        .buildUponParameters()
+                        .setMaxVideoSize(appliedMaxVideoWidth, appliedMaxVideoHeight)
+                        .setViewportSize(width, height, /* viewportOrientationMayChange= */ false));
+    }
+
+    private void clearConstraints() {
+        handler.removeCallbacks(applyViewSizeRunnable);
+        // Leave the values alone if the app has changed them since the limit was applied.
+        if (trackSelector != null && hasAppliedConstraints(trackSelector.getParameters())) {
+            trackSelector.setParameters(
+                    trackSelector
+                            .buildUponParameters()
+                            .setMaxVideoSize(appMaxVideoWidth, appMaxVideoHeight)
+                            .setViewportSize(
+                                    appViewportWidth, appViewportHeight, appViewportOrientationMayChange));
+        }
+        appliedWidth = C.LENGTH_UNSET;
+        appliedHeight = C.LENGTH_UNSET;
+    }
+
+    /**
+     * Returns whether the maximum video size and viewport of {@code parameters} are the ones last
+     * applied by this limiter.
+     */
+    private boolean hasAppliedConstraints(Parameters parameters) {
+        return appliedWidth != C.LENGTH_UNSET
+                && parameters.maxVideoWidth == appliedMaxVideoWidth
+                && parameters.maxVideoHeight == appliedMaxVideoHeight
+                && parameters.viewportWidth == appliedWidth
+                && parameters.viewportHeight == appliedHeight
+                && !parameters.viewportOrientationMayChange;
+    }
+
+    private static boolean exceedsHysteresis(int size, int appliedSize) {
+        return Math.abs(size - appliedSize) > appliedSize * HYSTERESIS_FRACTION;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import android.annotation.SuppressLint;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Looper;
+import android.view.TextureView;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.util.Assertions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A process-wide pool of the spare {@link TextureView}s that {@link
+ * PlayerView#handOffTargetView(com.google.android.exoplayer2.Player, PlayerView, PlayerView)}
+ * exchanges between player views.
+ *
+ * <p>A texture view's surface texture is released when the view is pooled, so pooled views don't
+ * hold graphics memory or show the last frame of a previous video. Pooled texture views are created
+ * with the application context, so the pool doesn't keep activities alive. The pool is cleared when
+ * the system asks the application to trim its memory.
+ *
+ * <p>All methods must be called on the main thread.
+ */
+/* package */ final class VideoSurfacePool {
+
+    /**
+     * The maximum number of pooled texture views.
+     */
+    public static final int MAX_SIZE = 2;
+
+    @SuppressLint("StaticFieldLeak") // Pooled texture views only reference the application context.
+    private static final List<TextureView> pool = new ArrayList<>();
+    private static boolean trimCallbacksRegistered;
+
+    private VideoSurfacePool() {
+    }
+
+    /**
+     * Returns a pooled texture view if one is available, or creates a new one.
+     */
+    public static TextureView acquire(Context context) {
+        checkMainThread();
+        if (pool.isEmpty()) {
+            return new TextureView(context.getApplicationContext());
+        }
+        return pool.remove(pool.size() - 1);
+    }
+
+    /**
+     * Removes a texture view from its parent, releasing its {@link android.graphics.SurfaceTexture},
+     * and returns it to the pool. The texture view is dropped if the pool is full or it wasn't
+     * created with the application context. No player may be rendering into the texture view.
+     */
+    public static void release(TextureView textureView) {
+        checkMainThread();
+        // Without a listener, detaching the view releases its surface texture.
+        textureView.setSurfaceTextureListener(null);
+        @Nullable ViewParent parent = textureView.getParent();
+        if (parent instanceof ViewGroup) {
+            ((ViewGroup) parent).removeView(textureView);
+        }
+        textureView.setOnClickListener(null);
+        textureView.setTransform(null);
+        Context applicationContext = textureView.getContext().getApplicationContext();
+        if (pool.size() >= MAX_SIZE || textureView.getContext() != applicationContext) {
+            return;
+        }
+        if (!trimCallbacksRegistered) {
+            trimCallbacksRegistered = true;
+            applicationContext.registerComponentCallbacks(TrimCallbacks.INSTANCE);
+        }
+        pool.add(textureView);
+    }
+
+    private static void checkMainThread() {
+        Assertions.checkState(Looper.myLooper() == Looper.getMainLooper());
+    }
+
+    /**
+     * Clears the pool when the system asks the application to trim its memory.
+     */
+    private static final class TrimCallbacks implements ComponentCallbacks2 {
+
+        public static final TrimCallbacks INSTANCE = new TrimCallbacks();
+
+        @Override
+        public void onTrimMemory(int level) {
+            pool.clear();
+        }
+
+        @Override
+        public void onLowMemory() {
+            pool.clear();
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+            // Do nothing.
+        }
+    }
+}
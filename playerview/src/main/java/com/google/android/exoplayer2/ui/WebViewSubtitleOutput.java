@@ -20,12 +20,10 @@ import static com.google.android.exoplayer2.ui.SubtitleView.DEFAULT_BOTTOM_PADDI
 import static com.google.android.exoplayer2.ui.SubtitleView.DEFAULT_TEXT_SIZE_FRACTION;
 
 import android.content.Context;
-import android.graphics.Color;
 import android.text.Layout;
 import android.util.AttributeSet;
 import android.util.Base64;
 import android.util.DisplayMetrics;
-import android.view.MotionEvent;
 import android.webkit.WebView;
 import android.widget.FrameLayout;
 
@@ -89,23 +87,7 @@ import java.util.Map;
         bottomPaddingFraction = DEFAULT_BOTTOM_PADDING_FRACTION;
 
         canvasSubtitleOutput = new CanvasSubtitleOutput(context, attrs);
-        webView =
-                new WebView(context, attrs) {
-                    @Override
-                    public boolean onTouchEvent(MotionEvent event) {
-                        super.onTouchEvent(event);
-                        // Return false so that touch events are allowed down into @id/exo_content_frame below.
-                        return false;
-                    }
-
-                    @Override
-                    public boolean performClick() {
-                        super.performClick();
-                        // Return false so that clicks are allowed down into @id/exo_content_frame below.
-                        return false;
-                    }
-                };
-        webView.setBackgroundColor(Color.TRANSPARENT);
+        webView = SubtitleWebViewPool.acquire(context, attrs);
 
         addView(canvasSubtitleOutput);
         addView(webView);
@@ -238,13 +220,15 @@ import java.util.Map;
     }
 
     /**
-     * Cleans up internal state, including calling {@link WebView#destroy()} on the delegate view.
+     * Cleans up internal state, returning the delegate {@link WebView} to the {@link
+     * SubtitleWebViewPool}, which destroys it if the pool is full.
      *
      * <p>This method may only be called after this view has been removed from the view system. No
      * other methods may be called on this view after destroy.
      */
     public void destroy() {
-        webView.destroy();
+        removeView(webView);
+        SubtitleWebViewPool.release(webView);
     }
 
     private void updateWebView() {
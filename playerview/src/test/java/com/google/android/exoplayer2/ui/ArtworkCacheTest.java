@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.graphics.Bitmap;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+/**
+ * Unit tests for {@link ArtworkCache}.
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 30)
+public final class ArtworkCacheTest {
+
+    private static final Bitmap.Config CONFIG = Bitmap.Config.ARGB_8888;
+
+    @After
+    public void tearDown() {
+        ArtworkCache.clear();
+        ArtworkCache.setMaxSizeBytes(ArtworkCache.DEFAULT_MAX_SIZE_BYTES);
+    }
+
+    @Test
+    public void getOrDecode_sameContentInDifferentArrays_returnsSameBitmap() throws IOException {
+        byte[] pictureData = createPng(/* rgb= */ 0xff0000);
+
+        Bitmap bitmap = ArtworkCache.getOrDecode(pictureData, 10, 10, CONFIG);
+        Bitmap cachedBitmap = ArtworkCache.getOrDecode(pictureData.clone(), 10, 10, CONFIG);
+
+        assertNotNull(bitmap);
+        assertSame(bitmap, cachedBitmap);
+    }
+
+    @Test
+    public void getOrDecode_differentContent_returnsDifferentBitmaps() throws IOException {
+        Bitmap bitmap = ArtworkCache.getOrDecode(createPng(/* rgb= */ 0xff0000), 10, 10, CONFIG);
+        Bitmap otherBitmap =
+                ArtworkCache.getOrDecode(createPng(/* rgb= */ 0x00ff00), 10, 10, CONFIG);
+
+        assertNotSame(bitmap, otherBitmap);
+    }
+
+    @Test
+    public void getOrDecode_differentTargetSizeOrConfig_returnsDifferentBitmaps()
+            throws IOException {
+        byte[] pictureData = createPng(/* rgb= */ 0xff0000);
+
+        Bitmap bitmap = ArtworkCache.getOrDecode(pictureData, 10, 10, CONFIG);
+        Bitmap otherSizeBitmap = ArtworkCache.getOrDecode(pictureData, 5, 5, CONFIG);
+        Bitmap otherConfigBitmap =
+                ArtworkCache.getOrDecode(pictureData, 10, 10, Bitmap.Config.RGB_565);
+
+        assertNotSame(bitmap, otherSizeBitmap);
+        assertNotSame(bitmap, otherConfigBitmap);
+    }
+
+    @Test
+    public void getIfCached_returnsBitmapOnlyOnceDecoded() throws IOException {
+        byte[] pictureData = createPng(/* rgb= */ 0xff0000);
+
+        assertNull(ArtworkCache.getIfCached(pictureData, 10, 10, CONFIG));
+        Bitmap bitmap = ArtworkCache.getOrDecode(pictureData, 10, 10, CONFIG);
+
+        assertSame(bitmap, ArtworkCache.getIfCached(pictureData.clone(), 10, 10, CONFIG));
+    }
+
+    @Test
+    public void evictedBitmap_stillReferenced_isReturnedFromWeakTier() throws IOException {
+        byte[] pictureData = createPng(/* rgb= */ 0xff0000);
+        Bitmap bitmap = ArtworkCache.getOrDecode(pictureData, 10, 10, CONFIG);
+        ArtworkCache.setMaxSizeBytes(bitmap.getAllocationByteCount());
+
+        // Decoding other artwork evicts the first bitmap from the LRU.
+        ArtworkCache.getOrDecode(createPng(/* rgb= */ 0x00ff00), 10, 10, CONFIG);
+
+        assertSame(bitmap, ArtworkCache.getIfCached(pictureData, 10, 10, CONFIG));
+    }
+
+    @Test
+    public void clear_removesBitmaps() throws IOException {
+        byte[] pictureData = createPng(/* rgb= */ 0xff0000);
+        Bitmap bitmap = ArtworkCache.getOrDecode(pictureData, 10, 10, CONFIG);
+
+        ArtworkCache.clear();
+
+        assertNotNull(bitmap);
+        assertNull(ArtworkCache.getIfCached(pictureData, 10, 10, CONFIG));
+    }
+
+    private static byte[] createPng(int rgb) throws IOException {
+        BufferedImage image = new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", outputStream);
+        return outputStream.toByteArray();
+    }
+}
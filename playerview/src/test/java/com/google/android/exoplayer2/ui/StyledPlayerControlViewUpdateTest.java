@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Activity;
+import android.os.Looper;
+import android.widget.FrameLayout;
+
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.exoplayer2.SimpleExoPlayer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+/**
+ * Unit tests for how {@link StyledPlayerControlView} batches its view updates into frames.
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 30)
+public final class StyledPlayerControlViewUpdateTest {
+
+    /** Longer than a frame, but shorter than the progress update interval. */
+    private static final Duration FRAME_DURATION = Duration.ofMillis(100);
+
+    private Activity activity;
+    private FrameLayout container;
+    private StyledPlayerControlView controlView;
+    private List<Long> progressUpdates;
+    @Nullable private SimpleExoPlayer player;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.buildActivity(Activity.class).setup().get();
+        container = new FrameLayout(activity);
+        activity.setContentView(container);
+        controlView = new StyledPlayerControlView(activity);
+        progressUpdates = new ArrayList<>();
+        controlView.setProgressUpdateListener(
+                (position, bufferedPosition) -> progressUpdates.add(position));
+    }
+
+    @After
+    public void tearDown() {
+        if (player != null) {
+            player.release();
+        }
+    }
+
+    @Test
+    public void updatesBeforeFrame_areFlushedOnce() {
+        container.addView(controlView);
+        runFrame();
+        progressUpdates.clear();
+
+        controlView.updateAll();
+        controlView.updateAll();
+        controlView.updateAll();
+        runFrame();
+
+        assertEquals(1, progressUpdates.size());
+    }
+
+    @Test
+    public void playerEventBurst_isFlushedOnce() {
+        player = new SimpleExoPlayer.Builder(activity).build();
+        controlView.setPlayer(player);
+        container.addView(controlView);
+        runFrame();
+        progressUpdates.clear();
+
+        player.setPlayWhenReady(true);
+        player.setPlayWhenReady(false);
+        player.setPlayWhenReady(true);
+        runFrame();
+
+        assertEquals(1, progressUpdates.size());
+    }
+
+    @Test
+    public void unchangedProgress_stillNotifiesListenerEveryUpdate() {
+        container.addView(controlView);
+        runFrame();
+        progressUpdates.clear();
+
+        controlView.updateAll();
+        runFrame();
+        controlView.updateAll();
+        runFrame();
+
+        assertEquals(2, progressUpdates.size());
+        assertEquals(progressUpdates.get(0), progressUpdates.get(1));
+    }
+
+    @Test
+    public void detachedView_isNotUpdated() {
+        controlView.updateAll();
+        runFrame();
+
+        assertEquals(0, progressUpdates.size());
+    }
+
+    @Test
+    public void detachingView_dropsPendingUpdate() {
+        container.addView(controlView);
+        runFrame();
+        progressUpdates.clear();
+
+        controlView.updateAll();
+        container.removeView(controlView);
+        runFrame();
+
+        assertEquals(0, progressUpdates.size());
+    }
+
+    @Test
+    public void reattachingView_updatesAll() {
+        container.addView(controlView);
+        runFrame();
+        container.removeView(controlView);
+        progressUpdates.clear();
+
+        container.addView(controlView);
+        runFrame();
+
+        assertEquals(1, progressUpdates.size());
+    }
+
+    private static void runFrame() {
+        shadowOf(Looper.getMainLooper()).idleFor(FRAME_DURATION);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.graphics.SurfaceTexture;
+import android.graphics.Typeface;
+import android.os.Looper;
+import android.text.SpannableStringBuilder;
+import android.text.style.StyleSpan;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.exoplayer2.text.Cue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+/**
+ * Unit tests for {@link TextureSubtitleOutput}.
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 30)
+public final class TextureSubtitleOutputTest {
+
+    private static final long RENDER_TIMEOUT_MS = 5000;
+
+    private TextureSubtitleOutput output;
+    private List<Integer> renderedCueCounts;
+
+    @Before
+    public void setUp() {
+        output = new TextureSubtitleOutput(ApplicationProvider.getApplicationContext());
+        renderedCueCounts = new ArrayList<>();
+        output.setFrameTimingListener(
+                (renderTimeNs, cueCount) -> renderedCueCounts.add(cueCount));
+    }
+
+    @After
+    public void tearDown() {
+        output.onSurfaceTextureDestroyed(new SurfaceTexture(/* texName= */ 0));
+    }
+
+    @Test
+    public void copyCues_copiesText() {
+        SpannableStringBuilder text = new SpannableStringBuilder("text");
+        Cue cue = new Cue.Builder().setText(text).build();
+
+        List<Cue> copies = TextureSubtitleOutput.copyCues(Collections.singletonList(cue));
+
+        CharSequence copiedText = copies.get(0).text;
+        assertNotSame(text, copiedText);
+        assertEquals("text", copiedText.toString());
+    }
+
+    @Test
+    public void copyCues_spansAddedToCopyDontChangeOriginal() {
+        SpannableStringBuilder text = new SpannableStringBuilder("text");
+        Cue cue = new Cue.Builder().setText(text).build();
+
+        List<Cue> copies = TextureSubtitleOutput.copyCues(Collections.singletonList(cue));
+        ((SpannableStringBuilder) copies.get(0).text)
+                .setSpan(new StyleSpan(Typeface.BOLD), 0, 4, /* flags= */ 0);
+
+        assertEquals(0, text.getSpans(0, text.length(), Object.class).length);
+    }
+
+    @Test
+    public void copyCues_keepsCuesWithoutText() {
+        Cue cue = new Cue.Builder().setSize(0.5f).build();
+
+        List<Cue> copies = TextureSubtitleOutput.copyCues(Collections.singletonList(cue));
+
+        assertSame(cue, copies.get(0));
+    }
+
+    @Test
+    public void update_rendersFrameOnRenderThread() {
+        output.onSurfaceTextureAvailable(new SurfaceTexture(/* texName= */ 0), 640, 360);
+        awaitRenderedFrames(1);
+        renderedCueCounts.clear();
+
+        output.update(
+                Arrays.asList(
+                        new Cue.Builder().setText("first").build(),
+                        new Cue.Builder().setText("second").build()),
+                CaptionStyleCompat.DEFAULT,
+                SubtitleView.DEFAULT_TEXT_SIZE_FRACTION,
+                Cue.TEXT_SIZE_TYPE_FRACTIONAL,
+                SubtitleView.DEFAULT_BOTTOM_PADDING_FRACTION);
+        awaitRenderedFrames(1);
+
+        assertEquals(2, (int) renderedCueCounts.get(renderedCueCounts.size() - 1));
+    }
+
+    @Test
+    public void setPadding_rendersNewFrame() {
+        output.onSurfaceTextureAvailable(new SurfaceTexture(/* texName= */ 0), 640, 360);
+        awaitRenderedFrames(1);
+        renderedCueCounts.clear();
+
+        output.setPadding(10, 10, 10, 10);
+        awaitRenderedFrames(1);
+
+        assertEquals(1, renderedCueCounts.size());
+    }
+
+    /**
+     * Waits for the render thread to report {@code count} frames, which it does through the main
+     * looper. The render thread runs in real time, so the wall clock is used for the timeout.
+     */
+    private void awaitRenderedFrames(int count) {
+        long deadlineMs = System.currentTimeMillis() + RENDER_TIMEOUT_MS;
+        while (renderedCueCounts.size() < count && System.currentTimeMillis() < deadlineMs) {
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.yield();
+        }
+        assertTrue(renderedCueCounts.size() >= count);
+    }
+}
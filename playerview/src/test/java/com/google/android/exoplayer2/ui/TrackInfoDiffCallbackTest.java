@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.exoplayer2.ui.StyledPlayerControlView.TrackInfo;
+import com.google.android.exoplayer2.ui.StyledPlayerControlView.TrackInfoDiffCallback;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+/**
+ * Unit tests for the row diffing of the track selection lists of {@link StyledPlayerControlView}.
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 30)
+public final class TrackInfoDiffCallbackTest {
+
+    private static final TrackInfo ENGLISH = createTrack(/* trackIndex= */ 0, "English", false);
+    private static final TrackInfo GERMAN = createTrack(/* trackIndex= */ 1, "German", false);
+    private static final TrackInfo FRENCH = createTrack(/* trackIndex= */ 2, "French", false);
+
+    @Test
+    public void sameTracks_dispatchesNothing() {
+        List<String> updates =
+                diff(
+                        Arrays.asList(ENGLISH, GERMAN),
+                        Arrays.asList(
+                                createTrack(/* trackIndex= */ 0, "English", false),
+                                createTrack(/* trackIndex= */ 1, "German", false)),
+                        /* firstRowChanged= */ false);
+
+        assertEquals(Collections.emptyList(), updates);
+    }
+
+    @Test
+    public void firstRowChanged_changesOnlyFirstRow() {
+        List<String> updates =
+                diff(
+                        Arrays.asList(ENGLISH, GERMAN),
+                        Arrays.asList(ENGLISH, GERMAN),
+                        /* firstRowChanged= */ true);
+
+        assertEquals(Collections.singletonList("changed 0+1"), updates);
+    }
+
+    @Test
+    public void selectionChange_changesOnlyAffectedRows() {
+        List<String> updates =
+                diff(
+                        Arrays.asList(createTrack(0, "English", true), GERMAN, FRENCH),
+                        Arrays.asList(ENGLISH, GERMAN, createTrack(2, "French", true)),
+                        /* firstRowChanged= */ false);
+        // The order in which updates are dispatched doesn't matter.
+        Collections.sort(updates);
+
+        assertEquals(Arrays.asList("changed 1+1", "changed 3+1"), updates);
+    }
+
+    @Test
+    public void addedTrack_isInsertedAfterFirstRow() {
+        List<String> updates =
+                diff(
+                        Arrays.asList(ENGLISH, FRENCH),
+                        Arrays.asList(ENGLISH, GERMAN, FRENCH),
+                        /* firstRowChanged= */ false);
+
+        assertEquals(Collections.singletonList("inserted 2+1"), updates);
+    }
+
+    @Test
+    public void firstTracks_insertFirstRowAndTracks() {
+        List<String> updates =
+                diff(
+                        Collections.emptyList(),
+                        Arrays.asList(ENGLISH, GERMAN),
+                        /* firstRowChanged= */ true);
+
+        assertEquals(Collections.singletonList("inserted 0+3"), updates);
+    }
+
+    @Test
+    public void clearedTracks_removeFirstRowAndTracks() {
+        List<String> updates =
+                diff(
+                        Arrays.asList(ENGLISH, GERMAN),
+                        Collections.emptyList(),
+                        /* firstRowChanged= */ true);
+
+        assertEquals(Collections.singletonList("removed 0+3"), updates);
+    }
+
+    @Test
+    public void getId_isUniquePerTrackAndNeverFirstRowId() {
+        TrackInfo track = new TrackInfo(0, 0, 0, "Track", false, false);
+        TrackInfo otherRenderer = new TrackInfo(1, 0, 0, "Track", false, false);
+        TrackInfo otherGroup = new TrackInfo(0, 1, 0, "Track", false, false);
+        TrackInfo otherTrack = new TrackInfo(0, 0, 1, "Track", false, false);
+
+        assertNotEquals(0, track.getId());
+        assertNotEquals(track.getId(), otherRenderer.getId());
+        assertNotEquals(track.getId(), otherGroup.getId());
+        assertNotEquals(track.getId(), otherTrack.getId());
+    }
+
+    private static TrackInfo createTrack(int trackIndex, String trackName, boolean selected) {
+        return new TrackInfo(
+                /* rendererIndex= */ 1,
+                /* groupIndex= */ trackIndex,
+                /* trackIndex= */ 0,
+                trackName,
+                selected,
+                /* explicitlySelected= */ selected);
+    }
+
+    /**
+     * Returns the updates dispatched to an adapter showing {@code oldTracks} when it switches to
+     * {@code newTracks}.
+     */
+    private static List<String> diff(
+            List<TrackInfo> oldTracks, List<TrackInfo> newTracks, boolean firstRowChanged) {
+        List<String> updates = new ArrayList<>();
+        DiffUtil.calculateDiff(
+                        new TrackInfoDiffCallback(oldTracks, newTracks, firstRowChanged),
+                        /* detectMoves= */ false)
+                .dispatchUpdatesTo(
+                        new ListUpdateCallback() {
+                            @Override
+                            public void onInserted(int position, int count) {
+                                updates.add("inserted " + position + "+" + count);
+                            }
+
+                            @Override
+                            public void onRemoved(int position, int count) {
+                                updates.add("removed " + position + "+" + count);
+                            }
+
+                            @Override
+                            public void onMoved(int fromPosition, int toPosition) {
+                                updates.add("moved " + fromPosition + "->" + toPosition);
+                            }
+
+                            @Override
+                            public void onChanged(int position, int count, @Nullable Object payload) {
+                                updates.add("changed " + position + "+" + count);
+                            }
+                        });
+        return updates;
+    }
+}
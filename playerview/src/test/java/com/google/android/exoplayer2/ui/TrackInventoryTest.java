@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlaybackException;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.RendererCapabilities;
+import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.Timeline;
+import com.google.android.exoplayer2.source.MediaSource.MediaPeriodId;
+import com.google.android.exoplayer2.source.TrackGroup;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector.SelectionOverride;
+import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
+import com.google.android.exoplayer2.trackselection.TrackSelectorResult;
+import com.google.android.exoplayer2.util.MimeTypes;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+/**
+ * Unit tests for {@link TrackInventory}.
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 30)
+public final class TrackInventoryTest {
+
+    private static final Format VIDEO_HD =
+            new Format.Builder()
+                    .setId("video-hd")
+                    .setSampleMimeType(MimeTypes.VIDEO_H264)
+                    .setWidth(1280)
+                    .setHeight(720)
+                    .build();
+    private static final Format VIDEO_SD =
+            new Format.Builder()
+                    .setId("video-sd")
+                    .setSampleMimeType(MimeTypes.VIDEO_H264)
+                    .setWidth(640)
+                    .setHeight(360)
+                    .build();
+    private static final Format AUDIO_AAC =
+            new Format.Builder().setId("audio-aac").setSampleMimeType(MimeTypes.AUDIO_AAC).build();
+    private static final Format AUDIO_UNSUPPORTED =
+            new Format.Builder()
+                    .setId("audio-unsupported")
+                    .setSampleMimeType(MimeTypes.AUDIO_AC4)
+                    .build();
+
+    private static final int VIDEO_RENDERER_INDEX = 0;
+    private static final int AUDIO_RENDERER_INDEX = 1;
+
+    private DefaultTrackSelector trackSelector;
+    private SimpleExoPlayer player;
+    private TrackSelectorResult trackSelectorResult;
+
+    @Before
+    public void setUp() throws ExoPlaybackException {
+        Context context = ApplicationProvider.getApplicationContext();
+        trackSelector = new DefaultTrackSelector(context);
+        // Building the player initializes the track selector.
+        player = new SimpleExoPlayer.Builder(context).setTrackSelector(trackSelector).build();
+        trackSelectorResult =
+                trackSelector.selectTracks(
+                        new RendererCapabilities[] {
+                                new FakeRendererCapabilities(C.TRACK_TYPE_VIDEO),
+                                new FakeRendererCapabilities(C.TRACK_TYPE_AUDIO)
+                        },
+                        new TrackGroupArray(
+                                new TrackGroup(VIDEO_HD, VIDEO_SD),
+                                new TrackGroup(AUDIO_AAC),
+                                new TrackGroup(AUDIO_UNSUPPORTED)),
+                        new MediaPeriodId(/* periodUid= */ new Object()),
+                        Timeline.EMPTY);
+        trackSelector.onSelectionActivated(trackSelectorResult.info);
+    }
+
+    @After
+    public void tearDown() {
+        player.release();
+    }
+
+    @Test
+    public void create_mapsRenderersAndTracks() {
+        TrackInventory trackInventory = createFromSelectorResult();
+
+        assertEquals(2, trackInventory.getRendererCount());
+        assertEquals(C.TRACK_TYPE_VIDEO, trackInventory.getRendererType(VIDEO_RENDERER_INDEX));
+        assertEquals(C.TRACK_TYPE_AUDIO, trackInventory.getRendererType(AUDIO_RENDERER_INDEX));
+        assertEquals(4, trackInventory.getTracks().size());
+        List<TrackInventory.Track> videoTracks = trackInventory.getTracks(VIDEO_RENDERER_INDEX);
+        assertEquals(2, videoTracks.size());
+        assertSame(VIDEO_HD, videoTracks.get(0).format);
+        assertSame(VIDEO_SD, videoTracks.get(1).format);
+        assertEquals(1, videoTracks.get(1).trackIndex);
+        List<TrackInventory.Track> audioTracks = trackInventory.getTracks(AUDIO_RENDERER_INDEX);
+        assertEquals(2, audioTracks.size());
+        assertEquals(1, audioTracks.get(1).groupIndex);
+    }
+
+    @Test
+    public void create_resolvesSupportAndSelection() {
+        TrackInventory trackInventory = createFromSelectorResult();
+
+        List<TrackInventory.Track> audioTracks = trackInventory.getTracks(AUDIO_RENDERER_INDEX);
+        TrackInventory.Track aacTrack = audioTracks.get(0);
+        TrackInventory.Track unsupportedTrack = audioTracks.get(1);
+        assertTrue(aacTrack.isSupported());
+        assertTrue(aacTrack.selected);
+        assertFalse(unsupportedTrack.isSupported());
+        assertFalse(unsupportedTrack.selected);
+    }
+
+    @Test
+    public void getRendererIndex_looksUpByTrackType() {
+        TrackInventory trackInventory = createFromSelectorResult();
+
+        assertEquals(VIDEO_RENDERER_INDEX, trackInventory.getRendererIndex(C.TRACK_TYPE_VIDEO));
+        assertEquals(AUDIO_RENDERER_INDEX, trackInventory.getRendererIndex(C.TRACK_TYPE_AUDIO));
+        assertEquals(C.INDEX_UNSET, trackInventory.getRendererIndex(C.TRACK_TYPE_TEXT));
+        assertTrue(trackInventory.hasTracks(C.TRACK_TYPE_AUDIO));
+        assertFalse(trackInventory.hasTracks(C.TRACK_TYPE_TEXT));
+    }
+
+    @Test
+    public void create_resolvesDisabledRenderersAndOverrides() {
+        trackSelector.setParameters(
+                trackSelector
+                        .buildUponParameters()
+                        .setRendererDisabled(AUDIO_RENDERER_INDEX, true)
+                        .setSelectionOverride(
+                                VIDEO_RENDERER_INDEX,
+                                trackSelectorResult.info.getTrackGroups(VIDEO_RENDERER_INDEX),
+                                new SelectionOverride(/* groupIndex= */ 0, /* tracks...= */ 1)));
+
+        TrackInventory trackInventory = createFromSelectorResult();
+
+        assertFalse(trackInventory.isRendererDisabled(VIDEO_RENDERER_INDEX));
+        assertTrue(trackInventory.hasSelectionOverride(VIDEO_RENDERER_INDEX));
+        assertTrue(trackInventory.isRendererDisabled(AUDIO_RENDERER_INDEX));
+        assertFalse(trackInventory.hasSelectionOverride(AUDIO_RENDERER_INDEX));
+    }
+
+    @Test
+    public void update_withoutPlayerOrTrackSelector_returnsEmpty() {
+        TrackInventory previous = createFromSelectorResult();
+
+        assertSame(
+                TrackInventory.EMPTY,
+                TrackInventory.update(previous, /* player= */ null, trackSelector));
+        assertSame(
+                TrackInventory.EMPTY,
+                TrackInventory.update(previous, player, /* trackSelector= */ null));
+    }
+
+    @Test
+    public void update_nothingChanged_returnsPreviousSnapshot() {
+        TrackInventory trackInventory =
+                TrackInventory.update(TrackInventory.EMPTY, player, trackSelector);
+
+        // The player returns a new track selection array on every call.
+        assertSame(trackInventory, TrackInventory.update(trackInventory, player, trackSelector));
+    }
+
+    @Test
+    public void update_parametersChanged_returnsNewSnapshot() {
+        TrackInventory trackInventory =
+                TrackInventory.update(TrackInventory.EMPTY, player, trackSelector);
+        trackSelector.setParameters(
+                trackSelector.buildUponParameters().setRendererDisabled(AUDIO_RENDERER_INDEX, true));
+
+        TrackInventory updatedTrackInventory =
+                TrackInventory.update(trackInventory, player, trackSelector);
+
+        assertNotSame(trackInventory, updatedTrackInventory);
+        assertTrue(updatedTrackInventory.isRendererDisabled(AUDIO_RENDERER_INDEX));
+    }
+
+    private TrackInventory createFromSelectorResult() {
+        return TrackInventory.create(
+                trackSelectorResult.info,
+                trackSelector.getParameters(),
+                new TrackSelectionArray(trackSelectorResult.selections));
+    }
+
+    /**
+     * Renderer capabilities that handle all formats of the renderer's type, except AC-4 audio.
+     */
+    private static final class FakeRendererCapabilities implements RendererCapabilities {
+
+        private final int trackType;
+
+        public FakeRendererCapabilities(int trackType) {
+            this.trackType = trackType;
+        }
+
+        @Override
+        public String getName() {
+            return "FakeRenderer";
+        }
+
+        @Override
+        public int getTrackType() {
+            return trackType;
+        }
+
+        @Override
+        public int supportsFormat(Format format) {
+            if (MimeTypes.getTrackType(format.sampleMimeType) != trackType) {
+                return RendererCapabilities.create(C.FORMAT_UNSUPPORTED_TYPE);
+            }
+            if (MimeTypes.AUDIO_AC4.equals(format.sampleMimeType)) {
+                return RendererCapabilities.create(C.FORMAT_UNSUPPORTED_SUBTYPE);
+            }
+            return RendererCapabilities.create(
+                    C.FORMAT_HANDLED, ADAPTIVE_SEAMLESS, TUNNELING_NOT_SUPPORTED);
+        }
+
+        @Override
+        public int supportsMixedMimeTypeAdaptation() {
+            return ADAPTIVE_NOT_SUPPORTED;
+        }
+    }
+}
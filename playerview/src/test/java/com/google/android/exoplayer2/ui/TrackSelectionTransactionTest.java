@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.source.TrackGroup;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector.Parameters;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector.SelectionOverride;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+/**
+ * Unit tests for {@link TrackSelectionTransaction}.
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 30)
+public final class TrackSelectionTransactionTest {
+
+    private static final TrackGroupArray TRACK_GROUPS =
+            new TrackGroupArray(
+                    new TrackGroup(
+                            new Format.Builder().setId("0").build(),
+                            new Format.Builder().setId("1").build()));
+
+    private DefaultTrackSelector trackSelector;
+
+    @Before
+    public void setUp() {
+        trackSelector = new DefaultTrackSelector(ApplicationProvider.getApplicationContext());
+    }
+
+    @Test
+    public void commit_withoutEdits_leavesParameters() {
+        Parameters parameters = trackSelector.getParameters();
+
+        boolean changed = new TrackSelectionTransaction(trackSelector).commit();
+
+        assertFalse(changed);
+        assertSame(parameters, trackSelector.getParameters());
+    }
+
+    @Test
+    public void commit_setsOverrideAndEnablesRenderer() {
+        trackSelector.setParameters(
+                trackSelector.buildUponParameters().setRendererDisabled(0, true));
+
+        boolean changed =
+                new TrackSelectionTransaction(trackSelector)
+                        .setSelectionOverride(0, TRACK_GROUPS, new SelectionOverride(0, 1))
+                        .commit();
+
+        Parameters parameters = trackSelector.getParameters();
+        assertTrue(changed);
+        assertFalse(parameters.getRendererDisabled(0));
+        assertEquals(
+                new SelectionOverride(0, 1), parameters.getSelectionOverride(0, TRACK_GROUPS));
+    }
+
+    @Test
+    public void commit_sameOverrideAgain_leavesParameters() {
+        new TrackSelectionTransaction(trackSelector)
+                .setSelectionOverride(0, TRACK_GROUPS, new SelectionOverride(0, 1))
+                .commit();
+        Parameters parameters = trackSelector.getParameters();
+
+        boolean changed =
+                new TrackSelectionTransaction(trackSelector)
+                        .setSelectionOverride(0, TRACK_GROUPS, new SelectionOverride(0, 1))
+                        .commit();
+
+        assertFalse(changed);
+        assertSame(parameters, trackSelector.getParameters());
+    }
+
+    @Test
+    public void commit_clearingAbsentOverrides_leavesParameters() {
+        Parameters parameters = trackSelector.getParameters();
+
+        boolean changed =
+                new TrackSelectionTransaction(trackSelector)
+                        .clearSelectionOverrides(0)
+                        .clearSelectionOverrides(1)
+                        .setRendererDisabled(1, false)
+                        .commit();
+
+        assertFalse(changed);
+        assertSame(parameters, trackSelector.getParameters());
+    }
+
+    @Test
+    public void commit_editsThatCancelOut_leaveParameters() {
+        Parameters parameters = trackSelector.getParameters();
+
+        boolean changed =
+                new TrackSelectionTransaction(trackSelector)
+                        .setRendererDisabled(0, true)
+                        .setRendererDisabled(0, false)
+                        .commit();
+
+        assertFalse(changed);
+        assertSame(parameters, trackSelector.getParameters());
+    }
+
+    @Test
+    public void commit_keepsParametersChangedSinceStart() {
+        TrackSelectionTransaction transaction =
+                new TrackSelectionTransaction(trackSelector).setRendererDisabled(1, true);
+        trackSelector.setParameters(trackSelector.buildUponParameters().setMaxVideoFrameRate(30));
+
+        transaction.commit();
+
+        Parameters parameters = trackSelector.getParameters();
+        assertTrue(parameters.getRendererDisabled(1));
+        assertEquals(30, parameters.maxVideoFrameRate);
+    }
+
+    @Test
+    public void setRendererSelection_withOverrideList_appliesFirstOverride() {
+        new TrackSelectionTransaction(trackSelector)
+                .setRendererSelection(
+                        0,
+                        TRACK_GROUPS,
+                        /* isDisabled= */ false,
+                        Arrays.asList(new SelectionOverride(0, 0), new SelectionOverride(0, 1)))
+                .commit();
+
+        assertEquals(
+                new SelectionOverride(0, 0),
+                trackSelector.getParameters().getSelectionOverride(0, TRACK_GROUPS));
+    }
+
+    @Test
+    public void setRendererSelection_withoutOverrides_clearsOverride() {
+        new TrackSelectionTransaction(trackSelector)
+                .setSelectionOverride(0, TRACK_GROUPS, new SelectionOverride(0, 1))
+                .commit();
+
+        boolean changed =
+                new TrackSelectionTransaction(trackSelector)
+                        .setRendererSelection(
+                                0, TRACK_GROUPS, /* isDisabled= */ false, Collections.emptyList())
+                        .commit();
+
+        assertTrue(changed);
+        assertFalse(trackSelector.getParameters().hasSelectionOverride(0, TRACK_GROUPS));
+    }
+
+    @Test
+    public void commit_twice_throws() {
+        TrackSelectionTransaction transaction = new TrackSelectionTransaction(trackSelector);
+        transaction.commit();
+
+        assertThrows(IllegalStateException.class, transaction::commit);
+    }
+}
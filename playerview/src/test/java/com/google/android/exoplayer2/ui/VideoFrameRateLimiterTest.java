@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer2.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import androidx.annotation.Nullable;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+/**
+ * Unit tests for {@link VideoFrameRateLimiter}.
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 30)
+public final class VideoFrameRateLimiterTest {
+
+    private FakeDisplaySource displaySource;
+    private DefaultTrackSelector trackSelector;
+    private VideoFrameRateLimiter limiter;
+
+    @Before
+    public void setUp() {
+        displaySource = new FakeDisplaySource();
+        trackSelector = new DefaultTrackSelector(ApplicationProvider.getApplicationContext());
+        limiter = new VideoFrameRateLimiter(displaySource);
+        limiter.setTrackSelector(trackSelector);
+    }
+
+    @Test
+    public void getFrameRateCap_roundsRefreshRate() {
+        assertEquals(60, VideoFrameRateLimiter.getFrameRateCap(59.94f, /* isPowerSaveMode= */ false));
+        assertEquals(50, VideoFrameRateLimiter.getFrameRateCap(50f, /* isPowerSaveMode= */ false));
+    }
+
+    @Test
+    public void getFrameRateCap_unknownRefreshRate_returnsNoValue() {
+        assertEquals(
+                Format.NO_VALUE,
+                VideoFrameRateLimiter.getFrameRateCap(Format.NO_VALUE, /* isPowerSaveMode= */ false));
+    }
+
+    @Test
+    public void getFrameRateCap_powerSaveMode_capsToPowerSaveMaxFrameRate() {
+        assertEquals(
+                VideoFrameRateLimiter.POWER_SAVE_MAX_FRAME_RATE,
+                VideoFrameRateLimiter.getFrameRateCap(60f, /* isPowerSaveMode= */ true));
+        assertEquals(
+                VideoFrameRateLimiter.POWER_SAVE_MAX_FRAME_RATE,
+                VideoFrameRateLimiter.getFrameRateCap(Format.NO_VALUE, /* isPowerSaveMode= */ true));
+        assertEquals(24, VideoFrameRateLimiter.getFrameRateCap(24f, /* isPowerSaveMode= */ true));
+    }
+
+    @Test
+    public void setEnabled_appliesCapAndListensForChanges() {
+        displaySource.refreshRate = 50f;
+
+        limiter.setEnabled(true);
+
+        assertNotNull(displaySource.listener);
+        assertEquals(50, limiter.getFrameRateCap());
+        assertEquals(50, trackSelector.getParameters().maxVideoFrameRate);
+    }
+
+    @Test
+    public void displayStateChange_updatesCap() {
+        displaySource.refreshRate = 60f;
+        limiter.setEnabled(true);
+
+        displaySource.setState(/* refreshRate= */ 60f, /* powerSaveMode= */ true);
+
+        assertEquals(VideoFrameRateLimiter.POWER_SAVE_MAX_FRAME_RATE, limiter.getFrameRateCap());
+        assertEquals(
+                VideoFrameRateLimiter.POWER_SAVE_MAX_FRAME_RATE,
+                trackSelector.getParameters().maxVideoFrameRate);
+    }
+
+    @Test
+    public void setEnabledFalse_restoresAppMaxVideoFrameRate() {
+        trackSelector.setParameters(trackSelector.buildUponParameters().setMaxVideoFrameRate(120));
+        displaySource.refreshRate = 60f;
+        limiter.setEnabled(true);
+
+        limiter.setEnabled(false);
+
+        assertNull(displaySource.listener);
+        assertEquals(Format.NO_VALUE, limiter.getFrameRateCap());
+        assertEquals(120, trackSelector.getParameters().maxVideoFrameRate);
+    }
+
+    @Test
+    public void capAboveAppMaxVideoFrameRate_keepsAppValue() {
+        trackSelector.setParameters(trackSelector.buildUponParameters().setMaxVideoFrameRate(24));
+        displaySource.refreshRate = 60f;
+
+        limiter.setEnabled(true);
+
+        assertEquals(24, trackSelector.getParameters().maxVideoFrameRate);
+    }
+
+    @Test
+    public void refreshRateBecomesUnknown_restoresAppMaxVideoFrameRate() {
+        trackSelector.setParameters(trackSelector.buildUponParameters().setMaxVideoFrameRate(120));
+        displaySource.refreshRate = 60f;
+        limiter.setEnabled(true);
+
+        displaySource.setState(Format.NO_VALUE, /* powerSaveMode= */ false);
+
+        assertEquals(Format.NO_VALUE, limiter.getFrameRateCap());
+        assertEquals(120, trackSelector.getParameters().maxVideoFrameRate);
+    }
+
+    @Test
+    public void appChangesMaxVideoFrameRateWhileCapped_keepsAppValueOnDisable() {
+        displaySource.refreshRate = 60f;
+        limiter.setEnabled(true);
+        trackSelector.setParameters(trackSelector.buildUponParameters().setMaxVideoFrameRate(25));
+
+        limiter.setEnabled(false);
+
+        assertEquals(25, trackSelector.getParameters().maxVideoFrameRate);
+    }
+
+    @Test
+    public void setDisplaySource_movesListenerAndUpdatesCap() {
+        displaySource.refreshRate = 60f;
+        limiter.setEnabled(true);
+        FakeDisplaySource newDisplaySource = new FakeDisplaySource();
+        newDisplaySource.refreshRate = 50f;
+
+        limiter.setDisplaySource(newDisplaySource);
+
+        assertNull(displaySource.listener);
+        assertNotNull(newDisplaySource.listener);
+        assertEquals(50, trackSelector.getParameters().maxVideoFrameRate);
+    }
+
+    private static final class FakeDisplaySource implements VideoFrameRateLimiter.DisplaySource {
+
+        public float refreshRate;
+        public boolean powerSaveMode;
+        @Nullable
+        public Listener listener;
+
+        public FakeDisplaySource() {
+            refreshRate = Format.NO_VALUE;
+        }
+
+        public void setState(float refreshRate, boolean powerSaveMode) {
+            this.refreshRate = refreshRate;
+            this.powerSaveMode = powerSaveMode;
+            if (listener != null) {
+                listener.onDisplayStateChanged();
+            }
+        }
+
+        @Override
+        public float getRefreshRate() {
+            return refreshRate;
+        }
+
+        @Override
+        public boolean isPowerSaveMode() {
+            return powerSaveMode;
+        }
+
+        @Override
+        public void setListener(@Nullable Listener listener) {
+            this.listener = listener;
+        }
+    }
+}